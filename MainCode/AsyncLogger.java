@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Log lines formatted and written to standard output by a background thread, so the thread that
+// logs (the event dispatch thread, a search) never waits on the console or pays for formatting.
+// The arguments are formatted later, so pass values that don't change (strings, numbers, pieces).
+// When the queue is full the line is dropped and counted rather than blocking the caller.
+public final class AsyncLogger {
+    private static final int CAPACITY = 4096;
+
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static final class Entry {
+        final String format;
+        final Object[] args;
+
+        Entry(String format, Object[] args) {
+            this.format = format;
+            this.args = args;
+        }
+    }
+
+    static {
+        Thread writer = new Thread(AsyncLogger::writeLoop, "logger");
+        writer.setDaemon(true);
+        writer.start();
+
+        // Write whatever is still queued when the program exits
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncLogger::drain, "logger-flush"));
+    }
+
+    private AsyncLogger() {
+    }
+
+    // Queue a line in String.format syntax
+    public static void log(String format, Object... args) {
+        if (!queue.offer(new Entry(format, args))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // Lines lost because the queue was full
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    private static void writeLoop() {
+        try {
+            while (true) {
+                write(queue.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void drain() {
+        List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Entry entry : remaining) {
+            write(entry);
+        }
+        System.out.flush();
+    }
+
+    private static void write(Entry entry) {
+        System.out.println(String.format(entry.format, entry.args));
+    }
+}
@@ -0,0 +1,85 @@
+// Helpers for working with 64-bit bitboards.
+// Square index = row * 8 + col, so square 0 is A8 (top-left) and square 63 is H1,
+// matching the row/col layout used by ChessBoard and ChessGame.
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_8 = 0xFFL;        // row 0
+    public static final long RANK_1 = 0xFFL << 56;  // row 7
+
+    // Squares strictly between two squares on the same line (empty if not aligned)
+    private static final long[][] BETWEEN = new long[64][64];
+
+    // Whole line (edge to edge) through two aligned squares, including both (empty if not aligned)
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                int rowDiff = row(to) - row(from);
+                int colDiff = col(to) - col(from);
+                boolean straight = rowDiff == 0 || colDiff == 0;
+                boolean diagonal = Math.abs(rowDiff) == Math.abs(colDiff);
+                if (from == to || (!straight && !diagonal)) {
+                    continue;
+                }
+
+                int rowStep = Integer.signum(rowDiff);
+                int colStep = Integer.signum(colDiff);
+                int row = row(from) + rowStep;
+                int col = col(from) + colStep;
+                long mask = 0L;
+                while (row != row(to) || col != col(to)) {
+                    mask |= bit(square(row, col));
+                    row += rowStep;
+                    col += colStep;
+                }
+                BETWEEN[from][to] = mask;
+
+                // Extend from 'from' in both directions to the edges of the board
+                long line = 0L;
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    row = row(from);
+                    col = col(from);
+                    while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                        line |= bit(square(row, col));
+                        row += sign * rowStep;
+                        col += sign * colStep;
+                    }
+                }
+                LINE[from][to] = line;
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    public static int square(int row, int col) {
+        return (row << 3) | col;
+    }
+
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static long rowMask(int row) {
+        return RANK_8 << (row << 3);
+    }
+
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+}
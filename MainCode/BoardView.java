@@ -0,0 +1,200 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+// The chess board as one custom-painted component: squares, coordinates, highlights and pieces.
+// Changes repaint only the squares they touch (see repaintSquare), and paintComponent skips every
+// square outside the clip, so a move redraws two squares instead of the whole board.
+// Pieces are sprites from a SpriteFactory, rendered for the square size and the screen's scale, so
+// painting one is a plain copy. While the window is being resized the pieces are drawn straight
+// from their vector shapes instead, and sprites are only asked for once the size has settled, so
+// dragging the window edge doesn't render (and cache) twelve sprites for every intermediate size.
+public class BoardView extends JComponent {
+    private static final long serialVersionUID = 1L;
+
+    private static final int BOARD_SIZE = 8;
+    private static final int DEFAULT_SQUARE_SIZE = 60;
+
+    // How long the size must stay the same before sprites are used again
+    private static final int RESIZE_SETTLE_MS = 150;
+
+    // Called with the square that was clicked
+    public interface SquareListener {
+        void squareClicked(int row, int col);
+    }
+
+    private final ChessGame game;
+    private final SpriteFactory spriteFactory;
+    private SquareListener squareListener;
+
+    // Background override for each square (row * 8 + col), or null for its normal color
+    private final Color[] highlights = new Color[BOARD_SIZE * BOARD_SIZE];
+
+    // Board colors
+    private final Color lightSquareColor = new Color(240, 240, 210); // Light beige
+    private final Color darkSquareColor = new Color(120, 150, 90);  // Olive green
+
+    // Square size that has settled, and that sprites are drawn at
+    private int spriteSize = -1;
+
+    private final Timer resizeTimer;
+
+    // Geometry, recomputed from the component size on every paint and click
+    private int squareSize;
+    private int margin;
+    private int boardX;
+    private int boardY;
+
+    public BoardView(ChessGame game, SpriteFactory spriteFactory) {
+        this.game = game;
+        this.spriteFactory = spriteFactory;
+        setOpaque(true);
+        setFont(new Font("Arial", Font.BOLD, 14));
+        setForeground(UIManager.getColor("Label.foreground"));
+        setBackground(UIManager.getColor("Panel.background"));
+        setPreferredSize(new Dimension(DEFAULT_SQUARE_SIZE * BOARD_SIZE + DEFAULT_SQUARE_SIZE / 2,
+                                       DEFAULT_SQUARE_SIZE * BOARD_SIZE + DEFAULT_SQUARE_SIZE / 2));
+
+        resizeTimer = new Timer(RESIZE_SETTLE_MS, e -> {
+            updateGeometry();
+            if (squareSize != spriteSize) {
+                spriteSize = squareSize;
+                repaint();
+            }
+        });
+        resizeTimer.setRepeats(false);
+
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                resizeTimer.restart();
+            }
+        });
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e) || squareListener == null) {
+                    return;
+                }
+                updateGeometry();
+                int col = Math.floorDiv(e.getX() - boardX, squareSize);
+                int row = Math.floorDiv(e.getY() - boardY, squareSize);
+                if (row >= 0 && row < BOARD_SIZE && col >= 0 && col < BOARD_SIZE) {
+                    squareListener.squareClicked(row, col);
+                }
+            }
+        });
+    }
+
+    public void setSquareListener(SquareListener listener) {
+        this.squareListener = listener;
+    }
+
+    // Paint a square in a highlight color, or back in its normal color for null
+    public void setHighlight(int row, int col, Color color) {
+        int index = row * BOARD_SIZE + col;
+        if (highlights[index] != color) {
+            highlights[index] = color;
+            repaintSquare(row, col);
+        }
+    }
+
+    // The piece on a square changed (e.g. after a move)
+    public void repaintSquare(int row, int col) {
+        updateGeometry();
+        repaint(boardX + col * squareSize, boardY + row * squareSize, squareSize, squareSize);
+    }
+
+    // Squares fill the smaller side, less a margin of half a square for the coordinates,
+    // and the board is centered in the rest
+    private void updateGeometry() {
+        int size = Math.min(getWidth(), getHeight());
+        squareSize = Math.max(1, size * 2 / (BOARD_SIZE * 2 + 1));
+        margin = squareSize / 2;
+        boardX = (getWidth() - BOARD_SIZE * squareSize - margin) / 2 + margin;
+        boardY = (getHeight() - BOARD_SIZE * squareSize - margin) / 2 + margin;
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics;
+        updateGeometry();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        // Everything outside the squares: background and coordinates
+        Rectangle board = new Rectangle(boardX, boardY, BOARD_SIZE * squareSize, BOARD_SIZE * squareSize);
+        if (!board.contains(clip)) {
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            paintCoordinates(g);
+        }
+
+        // Only the squares inside the clip
+        int firstCol = Math.max(0, Math.floorDiv(clip.x - boardX, squareSize));
+        int lastCol = Math.min(BOARD_SIZE - 1, Math.floorDiv(clip.x + clip.width - 1 - boardX, squareSize));
+        int firstRow = Math.max(0, Math.floorDiv(clip.y - boardY, squareSize));
+        int lastRow = Math.min(BOARD_SIZE - 1, Math.floorDiv(clip.y + clip.height - 1 - boardY, squareSize));
+        boolean resizing = spriteSize != squareSize;
+        if (resizing && !resizeTimer.isRunning()) {
+            resizeTimer.restart(); // e.g. first paint: settle on this size
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                paintSquare(g, row, col, resizing);
+            }
+        }
+    }
+
+    private void paintSquare(Graphics2D g, int row, int col, boolean resizing) {
+        int x = boardX + col * squareSize;
+        int y = boardY + row * squareSize;
+        Color highlight = highlights[row * BOARD_SIZE + col];
+        if (highlight != null) {
+            g.setColor(highlight);
+        } else {
+            g.setColor((row + col) % 2 == 0 ? lightSquareColor : darkSquareColor);
+        }
+        g.fillRect(x, y, squareSize, squareSize);
+
+        Piece piece = game.getPieceAt(row, col);
+        if (piece == null) {
+            return;
+        }
+        if (resizing) {
+            g.translate(x, y);
+            ChessPieceImageGenerator.drawPiece(g, piece, squareSize);
+            g.translate(-x, -y);
+        } else {
+            // The sprite has one pixel per screen pixel, so this is a copy even on a HiDPI screen
+            double scale = g.getTransform().getScaleX();
+            g.drawImage(spriteFactory.sprite(piece, squareSize, scale), x, y, squareSize, squareSize, null);
+        }
+    }
+
+    // Files A-H above the board and ranks 8-1 to its left
+    private void paintCoordinates(Graphics2D g) {
+        if (margin < 6) {
+            return;
+        }
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(getForeground());
+        g.setFont(getFont().deriveFont(Font.BOLD, Math.min(14f, margin * 0.7f)));
+        FontMetrics metrics = g.getFontMetrics();
+        int textHeight = metrics.getAscent() - metrics.getDescent();
+        for (int i = 0; i < BOARD_SIZE; i++) {
+            String file = String.valueOf((char) ('A' + i));
+            g.drawString(file, boardX + i * squareSize + (squareSize - metrics.stringWidth(file)) / 2,
+                         boardY - (margin - textHeight) / 2);
+            String rank = String.valueOf(BOARD_SIZE - i);
+            g.drawString(rank, boardX - (margin + metrics.stringWidth(rank)) / 2,
+                         boardY + i * squareSize + (squareSize + textHeight) / 2);
+        }
+    }
+}
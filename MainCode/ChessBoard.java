@@ -2,21 +2,14 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import javax.imageio.ImageIO;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ChessBoard extends JFrame {
-    private static final int BOARD_SIZE = 8; // 8x8 Chessboard
-    private JButton[][] squares = new JButton[BOARD_SIZE][BOARD_SIZE];
-    private JButton selectedPiece = null;
-    
-    // Represent chess pieces
-    private String[][] board = new String[BOARD_SIZE][BOARD_SIZE];
+    // The board itself, painted by one component
+    private BoardView boardView;
     
     // Game logic handler
     private ChessGame game;
@@ -31,90 +24,66 @@ public class ChessBoard extends JFrame {
     // For highlighting suggested moves
     private List<Point> highlightedSquares = new ArrayList<>();
     
+    // Search engine state for "Suggest Move"
+    private static final long SUGGESTION_TIME_MS = 1000;
+    private final TranspositionTable searchTable = new TranspositionTable(64);
+    private final ParallelSearch searchEngine =
+            new ParallelSearch(searchTable, Runtime.getRuntime().availableProcessors());
+    
+    // Suggestions are computed on this background thread, never on the event dispatch thread
+    private final ExecutorService suggestionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggestions");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Incremented to cancel the current suggestion; results from older suggestions are ignored
+    private volatile int suggestionId = 0;
+    
+    // When the current suggestion was asked for (System.nanoTime), for EngineMetrics, and its flight recorder event
+    private long suggestionStart;
+    private FlightEvents.Suggestion suggestionEvent;
+    
+    // Used only on the suggestion thread
+    private final int[] moveBuffer = new int[ChessGame.MAX_MOVES];
+    
+    // Memory-mapped Polyglot opening book, or null if there is none
+    private final PolyglotBook openingBook = PolyglotBook.openDefault();
+    
+    // Memory-mapped endgame tablebases, or null if there are none
+    private final Tablebase tablebase = Tablebase.openDefault();
+    
     // Panels to display captured pieces
     private JPanel whiteCapturedPanel;
     private JPanel blackCapturedPanel;
     
     // Track captured pieces
-    private List<String> whiteCapturedPieces = new ArrayList<>();
-    private List<String> blackCapturedPieces = new ArrayList<>();
+    private List<Piece> whiteCapturedPieces = new ArrayList<>();
+    private List<Piece> blackCapturedPieces = new ArrayList<>();
     
-    // Chess piece images
-    private Map<String, ImageIcon> pieceImages = new HashMap<>();
-    
-    // Board colors
-    private final Color lightSquareColor = new Color(240, 240, 210); // Light beige
-    private final Color darkSquareColor = new Color(120, 150, 90);  // Olive green
+    // Chess piece sprites, rendered in memory at whatever size they are needed
+    private static final int CAPTURED_ICON_SIZE = 60;
+    private final SpriteFactory spriteFactory = new SpriteFactory();
     
     public ChessBoard() {
         setTitle("Chess Board");
         setSize(650, 800); // Increased height for captured pieces panels
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        
-        // Load chess piece images
-        loadPieceImages();
+        searchEngine.setTablebase(tablebase);
         
         // Main panel with border layout
         JPanel mainPanel = new JPanel(new BorderLayout());
         
-        // Board panel with grid layout
-        JPanel boardPanel = new JPanel(new GridLayout(BOARD_SIZE + 1, BOARD_SIZE + 1));
-        
         // Create panels for captured pieces
         createCapturedPiecesPanels();
         
-        // Labels for the top row (A-H)
-        boardPanel.add(new JLabel("")); // Empty top-left corner
-        for (char c = 'A'; c <= 'H'; c++) {
-            JLabel label = new JLabel(String.valueOf(c), SwingConstants.CENTER);
-            label.setFont(new Font("Arial", Font.BOLD, 14));
-            boardPanel.add(label);
-        }
-
-        // Initialize the chess pieces
-        initializeBoard();
-        
-        // Initialize game logic
-        game = new ChessGame(board);
+        // Initialize game logic with the pieces in their starting positions
+        game = ChessGame.fromFen(ChessGame.START_FEN);
         
-        // Create the chessboard with alternating light and dark tiles
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            JLabel rowLabel = new JLabel(String.valueOf(8 - row), SwingConstants.CENTER);
-            rowLabel.setFont(new Font("Arial", Font.BOLD, 14));
-            boardPanel.add(rowLabel); // Row labels (8-1)
-
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                JButton square = new JButton();
-                square.setBorderPainted(false);
-                square.setFocusPainted(false);
-                
-                // Set piece images if present
-                if (board[row][col] != null) {
-                    square.setIcon(pieceImages.get(board[row][col]));
-                }
-                
-                // Add click listener for piece movement
-                final int finalRow = row;
-                final int finalCol = col;
-                square.addActionListener(new ActionListener() {
-                    @Override
-                    public void actionPerformed(ActionEvent e) {
-                        handleSquareClick(finalRow, finalCol);
-                    }
-                });
-
-                // Alternating light & dark pattern
-                if ((row + col) % 2 == 0) {
-                    square.setBackground(lightSquareColor);
-                } else {
-                    square.setBackground(darkSquareColor);
-                    square.setOpaque(true);
-                }
-
-                squares[row][col] = square;
-                boardPanel.add(square);
-            }
-        }
+        // The board, with its coordinates, painted from the game
+        boardView = new BoardView(game, spriteFactory);
+        boardView.setSquareListener((row, col) ->
+                recordAction("click", Bitboards.square(row, col), () -> handleSquareClick(row, col)));
         
         // Create status label
         statusLabel = new JLabel("White's turn to move");
@@ -129,7 +98,7 @@ public class ChessBoard extends JFrame {
         suggestMoveButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                suggestValidMove();
+                recordAction("suggest move", -1, ChessBoard.this::suggestValidMove);
             }
         });
         
@@ -137,7 +106,7 @@ public class ChessBoard extends JFrame {
         suggestCaptureButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                suggestCapture();
+                recordAction("suggest capture", -1, ChessBoard.this::suggestCapture);
             }
         });
         
@@ -145,8 +114,11 @@ public class ChessBoard extends JFrame {
         resetButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                clearHighlights();
-                statusLabel.setText(game.isWhiteTurn() ? "White's turn to move" : "Black's turn to move");
+                recordAction("clear suggestions", -1, () -> {
+                    cancelSuggestion();
+                    clearHighlights();
+                    statusLabel.setText(game.isWhiteTurn() ? "White's turn to move" : "Black's turn to move");
+                });
             }
         });
         
@@ -157,7 +129,7 @@ public class ChessBoard extends JFrame {
         // Create a panel for the center section (captured pieces + board + status)
         JPanel centerPanel = new JPanel(new BorderLayout());
         centerPanel.add(blackCapturedPanel, BorderLayout.NORTH);
-        centerPanel.add(boardPanel, BorderLayout.CENTER);
+        centerPanel.add(boardView, BorderLayout.CENTER);
         centerPanel.add(whiteCapturedPanel, BorderLayout.SOUTH);
         
         // Add components to main panel
@@ -170,36 +142,6 @@ public class ChessBoard extends JFrame {
         setVisible(true);
     }
     
-    private void loadPieceImages() {
-        try {
-            // Path to the image resources
-            String imagePath = "resources/chess_pieces/";
-            
-            // Load white pieces
-            pieceImages.put("W-Pawn", new ImageIcon(new File(imagePath + "white_pawn.png").getAbsolutePath()));
-            pieceImages.put("W-Rook", new ImageIcon(new File(imagePath + "white_rook.png").getAbsolutePath()));
-            pieceImages.put("W-Knight", new ImageIcon(new File(imagePath + "white_knight.png").getAbsolutePath()));
-            pieceImages.put("W-Bishop", new ImageIcon(new File(imagePath + "white_bishop.png").getAbsolutePath()));
-            pieceImages.put("W-Queen", new ImageIcon(new File(imagePath + "white_queen.png").getAbsolutePath()));
-            pieceImages.put("W-King", new ImageIcon(new File(imagePath + "white_king.png").getAbsolutePath()));
-            
-            // Load black pieces
-            pieceImages.put("B-Pawn", new ImageIcon(new File(imagePath + "black_pawn.png").getAbsolutePath()));
-            pieceImages.put("B-Rook", new ImageIcon(new File(imagePath + "black_rook.png").getAbsolutePath()));
-            pieceImages.put("B-Knight", new ImageIcon(new File(imagePath + "black_knight.png").getAbsolutePath()));
-            pieceImages.put("B-Bishop", new ImageIcon(new File(imagePath + "black_bishop.png").getAbsolutePath()));
-            pieceImages.put("B-Queen", new ImageIcon(new File(imagePath + "black_queen.png").getAbsolutePath()));
-            pieceImages.put("B-King", new ImageIcon(new File(imagePath + "black_king.png").getAbsolutePath()));
-        } catch (Exception e) {
-            System.err.println("Error loading chess piece images: " + e.getMessage());
-            JOptionPane.showMessageDialog(this, 
-                "Could not load chess piece images. Using text instead.\n" + e.getMessage(),
-                "Image Loading Error", JOptionPane.ERROR_MESSAGE);
-            
-            // If images can't be loaded, we'll continue with text-based pieces
-        }
-    }
-    
     private void createCapturedPiecesPanels() {
         // Panel for white captured pieces (displayed at the bottom)
         whiteCapturedPanel = new JPanel();
@@ -220,26 +162,14 @@ public class ChessBoard extends JFrame {
         blackCapturedPanel.removeAll();
         
         // Add white captured pieces
-        for (String piece : whiteCapturedPieces) {
-            JLabel pieceLabel;
-            if (pieceImages.containsKey(piece)) {
-                pieceLabel = new JLabel(pieceImages.get(piece));
-            } else {
-                pieceLabel = new JLabel(piece);
-                pieceLabel.setFont(new Font("Arial", Font.BOLD, 14));
-            }
+        for (Piece piece : whiteCapturedPieces) {
+            JLabel pieceLabel = new JLabel(new ImageIcon(spriteFactory.icon(piece, CAPTURED_ICON_SIZE)));
             whiteCapturedPanel.add(pieceLabel);
         }
         
         // Add black captured pieces
-        for (String piece : blackCapturedPieces) {
-            JLabel pieceLabel;
-            if (pieceImages.containsKey(piece)) {
-                pieceLabel = new JLabel(pieceImages.get(piece));
-            } else {
-                pieceLabel = new JLabel(piece);
-                pieceLabel.setFont(new Font("Arial", Font.BOLD, 14));
-            }
+        for (Piece piece : blackCapturedPieces) {
+            JLabel pieceLabel = new JLabel(new ImageIcon(spriteFactory.icon(piece, CAPTURED_ICON_SIZE)));
             blackCapturedPanel.add(pieceLabel);
         }
         
@@ -250,45 +180,14 @@ public class ChessBoard extends JFrame {
         blackCapturedPanel.repaint();
     }
     
-    private void initializeBoard() {
-        // Initialize white pieces (bottom)
-        board[7][0] = "W-Rook";
-        board[7][1] = "W-Knight";
-        board[7][2] = "W-Bishop";
-        board[7][3] = "W-Queen";
-        board[7][4] = "W-King";
-        board[7][5] = "W-Bishop";
-        board[7][6] = "W-Knight";
-        board[7][7] = "W-Rook";
-        
-        // White pawns
-        for (int col = 0; col < BOARD_SIZE; col++) {
-            board[6][col] = "W-Pawn";
-        }
-        
-        // Initialize black pieces (top)
-        board[0][0] = "B-Rook";
-        board[0][1] = "B-Knight";
-        board[0][2] = "B-Bishop";
-        board[0][3] = "B-Queen";
-        board[0][4] = "B-King";
-        board[0][5] = "B-Bishop";
-        board[0][6] = "B-Knight";
-        board[0][7] = "B-Rook";
-        
-        // Black pawns
-        for (int col = 0; col < BOARD_SIZE; col++) {
-            board[1][col] = "B-Pawn";
-        }
-    }
-    
     private void handleSquareClick(int row, int col) {
-        // Clear any existing highlights
+        // Cancel any suggestion in progress and clear existing highlights
+        cancelSuggestion();
         clearHighlights();
         
         // If no piece is selected and the clicked square has a piece
-        if (selectedPiece == null && board[row][col] != null) {
-            boolean isWhitePiece = board[row][col].startsWith("W");
+        if (selectedRow < 0 && game.getPieceAt(row, col) != null) {
+            boolean isWhitePiece = game.getPieceAt(row, col).isWhite();
             
             // Check if it's the correct player's turn
             if (isWhitePiece != game.isWhiteTurn()) {
@@ -297,19 +196,17 @@ public class ChessBoard extends JFrame {
             }
             
             // Select the piece
-            selectedPiece = squares[row][col];
             selectedRow = row;
             selectedCol = col;
-            selectedPiece.setBackground(Color.YELLOW); // Highlight selected piece
-            statusLabel.setText("Selected: " + board[row][col]);
-            System.out.println("Selected: " + board[row][col] + " at " + row + "," + col);
+            boardView.setHighlight(row, col, Color.YELLOW); // Highlight selected piece
+            statusLabel.setText("Selected: " + game.getPieceAt(row, col));
+            AsyncLogger.log("Selected: %s at %d,%d", game.getPieceAt(row, col), row, col);
         } 
         // If a piece is already selected
-        else if (selectedPiece != null) {
+        else if (selectedRow >= 0) {
             // If player clicked the same square again, deselect it
             if (row == selectedRow && col == selectedCol) {
                 resetSquareColor(selectedRow, selectedCol);
-                selectedPiece = null;
                 selectedRow = -1;
                 selectedCol = -1;
                 statusLabel.setText(game.isWhiteTurn() ? "White's turn to move" : "Black's turn to move");
@@ -318,26 +215,24 @@ public class ChessBoard extends JFrame {
             
             // Check if the move is valid before attempting it
             if (game.isValidMove(selectedRow, selectedCol, row, col)) {
-                // Remember the previous state in case we need to revert
-                String selectedPieceText = board[selectedRow][selectedCol];
-                String destinationPieceText = board[row][col];
+                // Remember what was on the destination square
+                Piece destinationPiece = game.getPieceAt(row, col);
                 
                 // Check if this is a capture
-                boolean isCapture = destinationPieceText != null;
+                boolean isCapture = destinationPiece != null;
                 
                 // Try to make the move
                 if (game.makeMove(selectedRow, selectedCol, row, col)) {
-                    // Update the UI with images
-                    squares[row][col].setIcon(pieceImages.get(board[row][col]));
-                    selectedPiece.setIcon(null);
+                    // Repaint the two squares that changed
+                    boardView.repaintSquare(selectedRow, selectedCol);
+                    boardView.repaintSquare(row, col);
                     
                     // If it was a capture, add to the appropriate captured list
                     if (isCapture) {
-                        boolean capturedWhitePiece = destinationPieceText.startsWith("W");
-                        if (capturedWhitePiece) {
-                            whiteCapturedPieces.add(destinationPieceText);
+                        if (destinationPiece.isWhite()) {
+                            whiteCapturedPieces.add(destinationPiece);
                         } else {
-                            blackCapturedPieces.add(destinationPieceText);
+                            blackCapturedPieces.add(destinationPiece);
                         }
                         updateCapturedPiecesDisplay();
                     }
@@ -346,27 +241,23 @@ public class ChessBoard extends JFrame {
                     resetSquareColor(selectedRow, selectedCol);
                     resetSquareColor(row, col);
                     
-                    // Update status
-                    statusLabel.setText(game.isWhiteTurn() ? "White's turn to move" : "Black's turn to move");
+                    // Update status, announcing check, checkmate and stalemate
+                    statusLabel.setText(getTurnStatus());
                     
                     // Display piece counts
-                    System.out.println("White pieces: " + game.getWhitePieces().size());
-                    System.out.println("Black pieces: " + game.getBlackPieces().size());
+                    AsyncLogger.log("White pieces: %d", game.getWhitePieces().size());
+                    AsyncLogger.log("Black pieces: %d", game.getBlackPieces().size());
                 } else {
                     // This should not happen if isValidMove returns true, but just in case
                     statusLabel.setText("Error making move!");
-                    
-                    // Revert any changes
-                    board[selectedRow][selectedCol] = selectedPieceText;
-                    board[row][col] = destinationPieceText;
                 }
             } else {
                 // Invalid move
-                String pieceType = board[selectedRow][selectedCol].substring(2);
+                String pieceType = game.getPieceAt(selectedRow, selectedCol).typeName();
                 statusLabel.setText("Invalid move for " + pieceType + "! Try again.");
                 
                 // Flash red briefly to indicate invalid move
-                squares[row][col].setBackground(Color.RED);
+                boardView.setHighlight(row, col, Color.RED);
                 Timer timer = new Timer(500, new ActionListener() {
                     @Override
                     public void actionPerformed(ActionEvent e) {
@@ -378,120 +269,267 @@ public class ChessBoard extends JFrame {
             }
             
             // Reset selection
-            selectedPiece = null;
             selectedRow = -1;
             selectedCol = -1;
+            
+            // A person validates a few moves a minute, so count them right away rather than in a batch
+            game.flushMetrics();
         }
     }
     
-    private void resetSquareColor(int row, int col) {
-        if ((row + col) % 2 == 0) {
-            squares[row][col].setBackground(lightSquareColor);
-        } else {
-            squares[row][col].setBackground(darkSquareColor);
+    private String getTurnStatus() {
+        String player = game.isWhiteTurn() ? "White" : "Black";
+        if (game.isCheckmate()) {
+            return "Checkmate! " + (game.isWhiteTurn() ? "Black" : "White") + " wins";
         }
+        if (game.isStalemate()) {
+            return "Stalemate! The game is a draw";
+        }
+        if (game.inCheck()) {
+            return player + " is in check!";
+        }
+        return player + "'s turn to move";
+    }
+    
+    private void resetSquareColor(int row, int col) {
+        boardView.setHighlight(row, col, null);
     }
     
     private void suggestValidMove() {
+        cancelSuggestion();
         clearHighlights();
-        
-        boolean isWhiteTurn = game.isWhiteTurn();
-        List<MoveOption> validMoves = new ArrayList<>();
-        
-        // Find a valid move for the current player
-        for (int startRow = 0; startRow < BOARD_SIZE; startRow++) {
-            for (int startCol = 0; startCol < BOARD_SIZE; startCol++) {
-                // Check if there's a piece belonging to the current player
-                if (board[startRow][startCol] != null && 
-                    (board[startRow][startCol].startsWith("W") == isWhiteTurn)) {
-                    
-                    // Look for valid moves for this piece
-                    for (int endRow = 0; endRow < BOARD_SIZE; endRow++) {
-                        for (int endCol = 0; endCol < BOARD_SIZE; endCol++) {
-                            if (game.isValidMove(startRow, startCol, endRow, endCol) && 
-                                board[endRow][endCol] == null) { // Only non-capturing moves
-                                validMoves.add(new MoveOption(startRow, startCol, endRow, endCol));
-                            }
-                        }
-                    }
+        startSuggestion();
+        statusLabel.setText("Thinking...");
+        
+        // Look up and search a copy of the game in the background so the board stays responsive
+        int id = suggestionId;
+        ChessGame snapshot = game.copy();
+        int lastMove = game.getLastMove(); // The copy has no move history, and the book key needs it
+        suggestionExecutor.execute(() -> {
+            // Undo the stop that cancelled the last suggestion; cancelling this one bumps the id
+            // before stopping, so it is caught by the check below or stops the search itself
+            searchEngine.clearStop();
+            if (id != suggestionId) {
+                return; // Cancelled before it started
+            }
+            
+            // Positions in the opening book are answered straight away, without a search
+            if (openingBook != null) {
+                int bookMove = openingBook.bestMove(snapshot, lastMove);
+                if (bookMove != Move.NONE) {
+                    SwingUtilities.invokeLater(() -> recordAction("show suggestion", -1,
+                            () -> showBookSuggestion(id, bookMove)));
+                    return;
+                }
+            }
+            
+            // So are endgames the tablebases cover
+            if (tablebase != null) {
+                Tablebase.ScoredMove tablebaseMove = tablebase.bestMove(snapshot);
+                if (tablebaseMove != null) {
+                    SwingUtilities.invokeLater(() -> recordAction("show suggestion", -1,
+                            () -> showTablebaseSuggestion(id, tablebaseMove.move, tablebaseMove.score)));
+                    return;
                 }
             }
+            
+            // Show the best move so far after each completed depth
+            searchEngine.setProgressListener((depth, score, bestMove, nodes) -> {
+                if (id != suggestionId) {
+                    searchEngine.stop();
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> recordAction("show suggestion", -1,
+                        () -> showSuggestion(id, bestMove, score, depth, nodes, false)));
+            });
+            
+            int move = searchEngine.search(snapshot, Search.MAX_DEPTH, SUGGESTION_TIME_MS);
+            int score = searchEngine.getBestScore();
+            int depth = searchEngine.getCompletedDepth();
+            long nodes = searchEngine.getNodes();
+            SwingUtilities.invokeLater(() -> recordAction("show suggestion", -1,
+                    () -> showSuggestion(id, move, score, depth, nodes, true)));
+        });
+    }
+    
+    // Highlight a search result, unless the suggestion it belongs to has been cancelled
+    private void showSuggestion(int id, int move, int score, int depth, long nodes, boolean finished) {
+        if (id != suggestionId) {
+            return;
         }
+        if (finished) {
+            finishSuggestion("search", move, depth, nodes, score);
+        }
+        clearHighlights();
         
-        if (validMoves.isEmpty()) {
+        if (move == Move.NONE) {
             statusLabel.setText("No valid moves found!");
             return;
         }
         
-        // Select a random valid move
-        Random rand = new Random();
-        MoveOption move = validMoves.get(rand.nextInt(validMoves.size()));
+        // Highlight and display the suggestion
+        highlightMove(move);
+        statusLabel.setText((finished ? "Suggestion: " : "Thinking... ") + describeMove(move) + " (" +
+                           formatScore(score) + ", depth " + depth + ")");
+    }
+    
+    // Highlight a move from the opening book, unless its suggestion has been cancelled
+    private void showBookSuggestion(int id, int move) {
+        if (id != suggestionId) {
+            return;
+        }
+        finishSuggestion("book", move, 0, 0, 0);
+        highlightMove(move);
+        statusLabel.setText("Suggestion: " + describeMove(move) + " (opening book)");
+    }
+    
+    // Highlight a move from the tablebases with the exact result, unless its suggestion has been cancelled
+    private void showTablebaseSuggestion(int id, int move, int score) {
+        if (id != suggestionId) {
+            return;
+        }
+        finishSuggestion("tablebase", move, 0, 0, score);
+        highlightMove(move);
+        statusLabel.setText("Suggestion: " + describeMove(move) + " (tablebase, " +
+                           (score == 0 ? "draw" : formatScore(score)) + ")");
+    }
+    
+    private void highlightMove(int move) {
+        int startRow = Bitboards.row(Move.from(move));
+        int startCol = Bitboards.col(Move.from(move));
+        int endRow = Bitboards.row(Move.to(move));
+        int endCol = Bitboards.col(Move.to(move));
         
         // Highlight the move
-        squares[move.startRow][move.startCol].setBackground(Color.GREEN);
-        squares[move.endRow][move.endCol].setBackground(Color.CYAN);
+        boardView.setHighlight(startRow, startCol, Color.GREEN);
+        boardView.setHighlight(endRow, endCol, Move.isCapture(move) ? Color.RED : Color.CYAN);
         
         // Add to highlighted squares list
-        highlightedSquares.add(new Point(move.startRow, move.startCol));
-        highlightedSquares.add(new Point(move.endRow, move.endCol));
-        
-        // Display suggestion
-        String piece = board[move.startRow][move.startCol];
-        statusLabel.setText("Suggestion: Move " + piece + " from " + 
-                           getSquareName(move.startRow, move.startCol) + " to " + 
-                           getSquareName(move.endRow, move.endCol));
+        highlightedSquares.add(new Point(startRow, startCol));
+        highlightedSquares.add(new Point(endRow, endCol));
+    }
+    
+    // e.g. "Move W-Knight from g1 to f3"
+    private String describeMove(int move) {
+        int startRow = Bitboards.row(Move.from(move));
+        int startCol = Bitboards.col(Move.from(move));
+        Piece piece = game.getPieceAt(startRow, startCol);
+        return "Move " + piece + " from " + getSquareName(startRow, startCol) + " to " +
+               getSquareName(Bitboards.row(Move.to(move)), Bitboards.col(Move.to(move)));
+    }
+    
+    private void startSuggestion() {
+        suggestionStart = System.nanoTime();
+        suggestionEvent = new FlightEvents.Suggestion();
+        suggestionEvent.begin();
+    }
+    
+    // The answer to the current suggestion is being shown: record how long it took
+    private void finishSuggestion(String source, int move, int depth, long nodes, int score) {
+        EngineMetrics.SUGGESTION_LATENCY.record(System.nanoTime() - suggestionStart);
+        suggestionEvent.end();
+        if (suggestionEvent.shouldCommit()) {
+            suggestionEvent.source = source;
+            suggestionEvent.move = move == Move.NONE ? null : Move.toString(move);
+            suggestionEvent.depth = depth;
+            suggestionEvent.nodes = nodes;
+            suggestionEvent.score = score;
+            suggestionEvent.commit();
+        }
+    }
+    
+    // Run an event handler inside a flight recorder event, so slow handlers on the event dispatch
+    // thread show up in a recording (square is a square index, or -1 if the action has none)
+    private void recordAction(String action, int square, Runnable handler) {
+        FlightEvents.BoardAction event = new FlightEvents.BoardAction();
+        event.begin();
+        handler.run();
+        event.end();
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.square = square < 0 ? null : Move.squareName(square);
+            event.commit();
+        }
+    }
+    
+    // Stop any running suggestion and ignore whatever it would still report
+    private void cancelSuggestion() {
+        suggestionId++;
+        searchEngine.stop();
+    }
+    
+    // Score for the status label, e.g. "+0.35" or "mate in 3"
+    private String formatScore(int score) {
+        int mateIn = Search.mateIn(score);
+        if (mateIn > 0) {
+            return "mate in " + mateIn;
+        }
+        if (mateIn < 0) {
+            return "mated in " + -mateIn;
+        }
+        return String.format("%+.2f", score / 100.0);
     }
     
     private void suggestCapture() {
+        cancelSuggestion();
         clearHighlights();
-        
-        boolean isWhiteTurn = game.isWhiteTurn();
-        List<MoveOption> captures = new ArrayList<>();
-        
-        // Find a capture move for the current player
-        for (int startRow = 0; startRow < BOARD_SIZE; startRow++) {
-            for (int startCol = 0; startCol < BOARD_SIZE; startCol++) {
-                // Check if there's a piece belonging to the current player
-                if (board[startRow][startCol] != null && 
-                    (board[startRow][startCol].startsWith("W") == isWhiteTurn)) {
-                    
-                    // Look for valid capture moves for this piece
-                    for (int endRow = 0; endRow < BOARD_SIZE; endRow++) {
-                        for (int endCol = 0; endCol < BOARD_SIZE; endCol++) {
-                            if (board[endRow][endCol] != null && 
-                                (board[endRow][endCol].startsWith("W") != isWhiteTurn) && 
-                                game.isValidMove(startRow, startCol, endRow, endCol)) {
-                                captures.add(new MoveOption(startRow, startCol, endRow, endCol));
-                            }
-                        }
-                    }
+        startSuggestion();
+        
+        // Pick the capture in the background, like the move suggestion
+        int id = suggestionId;
+        ChessGame snapshot = game.copy();
+        suggestionExecutor.execute(() -> {
+            // Find the capture moves for the current player
+            int captureCount = snapshot.generateCaptures(moveBuffer);
+            
+            // Pick the capture that leaves the best evaluation
+            int move = Move.NONE;
+            int bestScore = Integer.MIN_VALUE;
+            for (int i = 0; i < captureCount; i++) {
+                snapshot.makeMove(moveBuffer[i]);
+                int score = -snapshot.evaluate();
+                snapshot.unmakeMove();
+                if (score > bestScore) {
+                    bestScore = score;
+                    move = moveBuffer[i];
                 }
             }
+            int chosen = move;
+            SwingUtilities.invokeLater(() -> recordAction("show capture suggestion", -1,
+                    () -> showCaptureSuggestion(id, chosen)));
+        });
+    }
+    
+    private void showCaptureSuggestion(int id, int move) {
+        if (id != suggestionId) {
+            return;
         }
+        finishSuggestion("capture", move, 0, 0, 0);
         
-        if (captures.isEmpty()) {
+        if (move == Move.NONE) {
             statusLabel.setText("No capture moves available!");
             return;
         }
         
-        // Select a random capture
-        Random rand = new Random();
-        MoveOption move = captures.get(rand.nextInt(captures.size()));
+        int startRow = Bitboards.row(Move.from(move));
+        int startCol = Bitboards.col(Move.from(move));
+        int endRow = Bitboards.row(Move.to(move));
+        int endCol = Bitboards.col(Move.to(move));
         
         // Highlight the move
-        squares[move.startRow][move.startCol].setBackground(Color.GREEN);
-        squares[move.endRow][move.endCol].setBackground(Color.RED);
+        boardView.setHighlight(startRow, startCol, Color.GREEN);
+        boardView.setHighlight(endRow, endCol, Color.RED);
         
         // Add to highlighted squares list
-        highlightedSquares.add(new Point(move.startRow, move.startCol));
-        highlightedSquares.add(new Point(move.endRow, move.endCol));
+        highlightedSquares.add(new Point(startRow, startCol));
+        highlightedSquares.add(new Point(endRow, endCol));
         
         // Display suggestion
-        String attacker = board[move.startRow][move.startCol];
-        String target = board[move.endRow][move.endCol];
+        Piece attacker = game.getPieceAt(startRow, startCol);
+        Piece target = game.getPieceAt(endRow, endCol);
         statusLabel.setText("Capture suggestion: Use " + attacker + " at " + 
-                           getSquareName(move.startRow, move.startCol) + " to capture " + 
-                           target + " at " + getSquareName(move.endRow, move.endCol));
+                           getSquareName(startRow, startCol) + " to capture " + 
+                           target + " at " + getSquareName(endRow, endCol));
     }
     
     private void clearHighlights() {
@@ -509,18 +547,7 @@ public class ChessBoard extends JFrame {
     }
 
     public static void main(String[] args) {
+        EngineMetrics.register();
         SwingUtilities.invokeLater(ChessBoard::new);
     }
-    
-    // Inner class to store move suggestions
-    private static class MoveOption {
-        int startRow, startCol, endRow, endCol;
-        
-        public MoveOption(int startRow, int startCol, int endRow, int endCol) {
-            this.startRow = startRow;
-            this.startCol = startCol;
-            this.endRow = endRow;
-            this.endCol = endCol;
-        }
-    }
-}
+}
\ No newline at end of file
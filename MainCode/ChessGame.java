@@ -1,234 +1,637 @@
-import java.util.ArrayList;
+import Movement.Bishop;
+import Movement.King;
+import Movement.Knight;
+import Movement.Pawn;
+import Movement.Queen;
+import Movement.Rook;
+
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ChessGame {
     private static final int BOARD_SIZE = 8;
-    private String[][] board;
+    
+    // Upper bound on the number of moves generated for one position
+    public static final int MAX_MOVES = 256;
+    
+    // Standard starting position in Forsyth-Edwards Notation
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    
+    // Initial undo stack size; it only grows for games longer than this many plies
+    private static final int MAX_PLY = 1024;
+    
+    private final Position position;
     private boolean isWhiteTurn = true;
     
-    // Lists to track pieces for each player
-    private List<ChessPiece> whitePieces = new ArrayList<>();
-    private List<ChessPiece> blackPieces = new ArrayList<>();
+    // Zobrist key of the current position, updated incrementally by makeMove
+    private long hash;
+    
+    // Packed material and piece-square score (see Evaluation) and game phase, also updated by makeMove
+    private int evaluation;
+    private int phase;
+    
+    // Undo stack: the move played, the piece it captured (-1 if none) and the hash before it, for each ply
+    private int[] undoMoves = new int[MAX_PLY];
+    private int[] undoCaptured = new int[MAX_PLY];
+    private long[] undoHash = new long[MAX_PLY];
+    private long[] undoCheckers = new long[MAX_PLY];
+    private long[] undoPinned = new long[MAX_PLY];
+    private int[] undoEvaluation = new int[MAX_PLY];
+    private int[] undoPhase = new int[MAX_PLY];
+    private int ply = 0;
+    
+    // Enemy pieces giving check to the player to move, and that player's pieces pinned to their king.
+    // Worked out once per position in makeMove; unmakeMove restores them from the undo stack.
+    private long checkers;
+    private long pinned;
+    
+    // Scratch move list for the game status queries
+    private final int[] statusMoves = new int[MAX_MOVES];
+    
+    // Metrics counted here and handed to EngineMetrics in batches (see flushMetrics)
+    private static final int METRICS_BATCH = 1024;
+    private int unflushedValidations;
+    private int generations;
+    
+    // Read-only views of each player's pieces, backed by the position's piece registry
+    private final List<ChessPiece> whitePieces = new PieceListView(Position.WHITE);
+    private final List<ChessPiece> blackPieces = new PieceListView(Position.BLACK);
     
     public ChessGame(String[][] board) {
-        this.board = board;
-        initializePieceLists();
-    }
-    
-    private void initializePieceLists() {
-        // Scan the board and populate piece lists
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                String pieceStr = board[row][col];
-                if (pieceStr != null) {
-                    boolean isWhite = pieceStr.startsWith("W");
-                    String pieceType = pieceStr.substring(2); // Remove "W-" or "B-" prefix
-                    
-                    ChessPiece piece = new ChessPiece(pieceType, isWhite, row, col);
-                    
-                    if (isWhite) {
-                        whitePieces.add(piece);
-                    } else {
-                        blackPieces.add(piece);
-                    }
+        this.position = Position.fromArray(board);
+        this.hash = Zobrist.compute(position, isWhiteTurn);
+        this.evaluation = Evaluation.compute(position);
+        this.phase = Evaluation.computePhase(position);
+        updateCheckInfo();
+    }
+    
+    private ChessGame(Position position, boolean isWhiteTurn) {
+        this.position = position;
+        this.isWhiteTurn = isWhiteTurn;
+        this.hash = Zobrist.compute(position, isWhiteTurn);
+        this.evaluation = Evaluation.compute(position);
+        this.phase = Evaluation.computePhase(position);
+        updateCheckInfo();
+    }
+    
+    // Set up a game from a FEN string (piece placement and side to move are used)
+    public static ChessGame fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        Position position = new Position();
+        int row = 0;
+        int col = 0;
+        for (char c : fields[0].toCharArray()) {
+            if (c == '/') {
+                row++;
+                col = 0;
+            } else if (Character.isDigit(c)) {
+                col += c - '0';
+            } else {
+                int type = "PNBRQK".indexOf(Character.toUpperCase(c));
+                if (type < 0 || row >= BOARD_SIZE || col >= BOARD_SIZE) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
                 }
+                int color = Character.isUpperCase(c) ? Position.WHITE : Position.BLACK;
+                position.addPiece(color, type, Bitboards.square(row, col));
+                col++;
             }
         }
+        boolean isWhiteTurn = fields.length < 2 || fields[1].equals("w");
+        return new ChessGame(position, isWhiteTurn);
+    }
+    
+    // Replace the pieces and the player to move in place, dropping the undo history.
+    // Much cheaper than creating a game, for tools that visit millions of positions.
+    public void setPosition(Position source, boolean isWhiteTurn) {
+        position.copyFrom(source);
+        this.isWhiteTurn = isWhiteTurn;
+        hash = Zobrist.compute(position, isWhiteTurn);
+        evaluation = Evaluation.compute(position);
+        phase = Evaluation.computePhase(position);
+        ply = 0;
+        updateCheckInfo();
+    }
+    
+    // Independent copy of the current position (the undo history is not copied)
+    public ChessGame copy() {
+        return new ChessGame(new Position(position), isWhiteTurn);
     }
     
     public boolean isValidMove(int startRow, int startCol, int endRow, int endCol) {
-        // Check if there's a piece at the start position
-        if (board[startRow][startCol] == null) {
-            return false;
+        int from = Bitboards.square(startRow, startCol);
+        int to = Bitboards.square(endRow, endCol);
+        FlightEvents.MoveValidation event = new FlightEvents.MoveValidation();
+        event.begin();
+        boolean valid = isValidMove(from, to);
+        event.end();
+        if (event.shouldCommit()) {
+            event.move = Move.squareName(from) + Move.squareName(to);
+            event.valid = valid;
+            event.commit();
         }
+        return valid;
+    }
+    
+    // isValidMove by square index, without a flight recorder event (the search calls this through isLegalMove)
+    private boolean isValidMove(int from, int to) {
+        if (++unflushedValidations == METRICS_BATCH) {
+            flushMetrics();
+        }
+        int us = isWhiteTurn ? Position.WHITE : Position.BLACK;
         
-        // Check if it's the correct player's turn
-        boolean isWhitePiece = board[startRow][startCol].startsWith("W");
-        if (isWhitePiece != isWhiteTurn) {
+        // Check if there's a piece of the player to move at the start position
+        if ((position.colorPieces(us) & Bitboards.bit(from)) == 0) {
             return false;
         }
         
         // Check if the destination has a piece of the same color
-        if (board[endRow][endCol] != null) {
-            boolean isWhiteDestination = board[endRow][endCol].startsWith("W");
-            if (isWhitePiece == isWhiteDestination) {
-                return false; // Can't capture your own piece
-            }
+        if ((position.colorPieces(us) & Bitboards.bit(to)) != 0) {
+            return false; // Can't capture your own piece
         }
         
-        // Get the piece type and validate movement based on piece rules
-        String pieceType = board[startRow][startCol].substring(2);
-        
-        switch (pieceType) {
-            case "Pawn":
-                return isValidPawnMove(startRow, startCol, endRow, endCol);
-            case "Rook":
-                return isValidRookMove(startRow, startCol, endRow, endCol);
-            case "Knight":
-                return isValidKnightMove(startRow, startCol, endRow, endCol);
-            case "Bishop":
-                return isValidBishopMove(startRow, startCol, endRow, endCol);
-            case "Queen":
-                return isValidQueenMove(startRow, startCol, endRow, endCol);
-            case "King":
-                return isValidKingMove(startRow, startCol, endRow, endCol);
+        // Validate movement based on piece rules, then make sure the move doesn't leave the king in check
+        return isValidPieceMove(from, to) && isLegal(from, to);
+    }
+    
+    private boolean isValidPieceMove(int from, int to) {
+        long toBit = Bitboards.bit(to);
+        long occupied = position.occupied();
+        switch (position.typeAt(from)) {
+            case Position.PAWN:
+                return isValidPawnMove(from, to);
+            case Position.ROOK:
+                return (Rook.attacks(from, occupied) & toBit) != 0;
+            case Position.KNIGHT:
+                return (Knight.attacks(from) & toBit) != 0;
+            case Position.BISHOP:
+                return (Bishop.attacks(from, occupied) & toBit) != 0;
+            case Position.QUEEN:
+                return (Queen.attacks(from, occupied) & toBit) != 0;
+            case Position.KING:
+                return (King.attacks(from) & toBit) != 0;
             default:
                 return false;
         }
     }
     
-    private boolean isValidPawnMove(int startRow, int startCol, int endRow, int endCol) {
-        boolean isWhite = board[startRow][startCol].startsWith("W");
-        int direction = isWhite ? -1 : 1; // White moves up (decreasing row), Black moves down
+    private boolean isValidPawnMove(int from, int to) {
+        boolean isWhite = isWhiteTurn;
+        int direction = isWhite ? -8 : 8; // White moves up (decreasing row), Black moves down
+        long toBit = Bitboards.bit(to);
+        long occupied = position.occupied();
+        
+        // Capture diagonally
+        if ((toBit & Pawn.attacks(isWhite, from)) != 0) {
+            return (toBit & position.colorPieces(isWhite ? Position.BLACK : Position.WHITE)) != 0;
+        }
+        
+        // Forward moves need an empty destination
+        if ((toBit & occupied) != 0) {
+            return false;
+        }
         
         // Regular move (1 square forward)
-        if (startCol == endCol && endRow == startRow + direction && board[endRow][endCol] == null) {
+        if (to == from + direction) {
             return true;
         }
         
         // First move can be 2 squares
-        if (startCol == endCol && 
-            ((isWhite && startRow == 6 && endRow == 4) || (!isWhite && startRow == 1 && endRow == 3)) &&
-            board[startRow + direction][startCol] == null && board[endRow][endCol] == null) {
+        int startRow = isWhite ? 6 : 1;
+        return Bitboards.row(from) == startRow && to == from + 2 * direction
+                && (occupied & Bitboards.bit(from + direction)) == 0;
+    }
+    
+    // Whether a move that follows the piece rules keeps the mover's own king out of check
+    private boolean isLegal(int from, int to) {
+        int us = isWhiteTurn ? Position.WHITE : Position.BLACK;
+        long kingBit = position.pieces(us, Position.KING);
+        if (kingBit == 0) {
             return true;
         }
+        int king = Long.numberOfTrailingZeros(kingBit);
+        long toBit = Bitboards.bit(to);
         
-        // Capture diagonally
-        if ((endCol == startCol + 1 || endCol == startCol - 1) && 
-             endRow == startRow + direction && 
-             board[endRow][endCol] != null && 
-             isWhite != board[endRow][endCol].startsWith("W")) {
-            return true;
+        // The king may not step onto an attacked square (sliders see through the square it leaves)
+        if (from == king) {
+            return (attackMap(us ^ 1, position.occupied() ^ kingBit) & toBit) == 0;
         }
         
-        return false;
+        // Other pieces must capture or block a single checker, and can't help against a double check
+        if (checkers != 0) {
+            if ((checkers & (checkers - 1)) != 0) {
+                return false;
+            }
+            if (((Bitboards.between(king, Long.numberOfTrailingZeros(checkers)) | checkers) & toBit) == 0) {
+                return false;
+            }
+        }
+        return (pinRay(from, king) & toBit) != 0;
+    }
+    
+    public boolean makeMove(int startRow, int startCol, int endRow, int endCol) {
+        int from = Bitboards.square(startRow, startCol);
+        int to = Bitboards.square(endRow, endCol);
+        FlightEvents.MakeMove event = new FlightEvents.MakeMove();
+        event.begin();
+        Piece piece = getPieceAt(startRow, startCol);
+        Piece captured = getPieceAt(endRow, endCol);
+        boolean made = isValidMove(from, to);
+        if (made) {
+            // Check if this is a capture
+            int flags = moveFlags(from, to);
+            if (flags == Move.CAPTURE) {
+                AsyncLogger.log("Captured: %s", captured);
+            }
+            
+            makeMove(Move.encode(from, to, flags));
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.move = Move.squareName(from) + Move.squareName(to);
+            event.piece = piece == null ? null : piece.toString();
+            event.captured = made && captured != null ? captured.toString() : null;
+            event.made = made;
+            event.commit();
+        }
+        return made;
     }
     
-    private boolean isValidRookMove(int startRow, int startCol, int endRow, int endCol) {
-        // Rooks move horizontally or vertically
-        if (startRow != endRow && startCol != endCol) {
+    // Whether a packed move from elsewhere (the transposition table, a killer slot) is legal in this
+    // position, flags included. Much cheaper than generating the moves to look for it.
+    public boolean isLegalMove(int move) {
+        if (move == Move.NONE) {
             return false;
         }
-        
-        // Check if path is clear
-        return isPathClear(startRow, startCol, endRow, endCol);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        return isValidMove(from, to) && move == Move.encode(from, to, moveFlags(from, to));
     }
     
-    private boolean isValidKnightMove(int startRow, int startCol, int endRow, int endCol) {
-        // Knights move in L-shape: 2 in one direction and 1 in perpendicular direction
-        int rowDiff = Math.abs(endRow - startRow);
-        int colDiff = Math.abs(endCol - startCol);
-        
-        return (rowDiff == 2 && colDiff == 1) || (rowDiff == 1 && colDiff == 2);
+    // True if a piece of the given color attacks the square (cheapest tests first)
+    public boolean isAttacked(int square, int byColor) {
+        long occupied = position.occupied();
+        long queens = position.pieces(byColor, Position.QUEEN);
+        return (Pawn.attacks(byColor == Position.BLACK, square) & position.pieces(byColor, Position.PAWN)) != 0
+                || (Knight.attacks(square) & position.pieces(byColor, Position.KNIGHT)) != 0
+                || (King.attacks(square) & position.pieces(byColor, Position.KING)) != 0
+                || (Bishop.attacks(square, occupied) & (position.pieces(byColor, Position.BISHOP) | queens)) != 0
+                || (Rook.attacks(square, occupied) & (position.pieces(byColor, Position.ROOK) | queens)) != 0;
     }
     
-    private boolean isValidBishopMove(int startRow, int startCol, int endRow, int endCol) {
-        // Bishops move diagonally
-        if (Math.abs(endRow - startRow) != Math.abs(endCol - startCol)) {
-            return false;
+    // Flags for a valid move from one square to another
+    private int moveFlags(int from, int to) {
+        if (position.colorAt(to) >= 0) {
+            return Move.CAPTURE;
         }
-        
-        // Check if path is clear
-        return isPathClear(startRow, startCol, endRow, endCol);
+        if (position.typeAt(from) == Position.PAWN && Math.abs(Bitboards.row(to) - Bitboards.row(from)) == 2) {
+            return Move.DOUBLE_PAWN_PUSH;
+        }
+        return Move.QUIET;
     }
     
-    private boolean isValidQueenMove(int startRow, int startCol, int endRow, int endCol) {
-        // Queen combines rook and bishop movement
-        boolean movingDiagonally = Math.abs(endRow - startRow) == Math.abs(endCol - startCol);
-        boolean movingStraight = startRow == endRow || startCol == endCol;
+    // Play a move produced by generateMoves. The move is not validated.
+    // Every call can be taken back with unmakeMove().
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int us = isWhiteTurn ? Position.WHITE : Position.BLACK;
+        
+        // Record what is needed to take the move back
+        if (ply == undoMoves.length) {
+            undoMoves = Arrays.copyOf(undoMoves, ply * 2);
+            undoCaptured = Arrays.copyOf(undoCaptured, ply * 2);
+            undoHash = Arrays.copyOf(undoHash, ply * 2);
+            undoCheckers = Arrays.copyOf(undoCheckers, ply * 2);
+            undoPinned = Arrays.copyOf(undoPinned, ply * 2);
+            undoEvaluation = Arrays.copyOf(undoEvaluation, ply * 2);
+            undoPhase = Arrays.copyOf(undoPhase, ply * 2);
+        }
+        int captured = position.pieceAt(to);
+        undoMoves[ply] = move;
+        undoCaptured[ply] = captured;
+        undoHash[ply] = hash;
+        undoCheckers[ply] = checkers;
+        undoPinned[ply] = pinned;
+        undoEvaluation[ply] = evaluation;
+        undoPhase[ply] = phase;
+        ply++;
         
-        if (!movingDiagonally && !movingStraight) {
-            return false;
+        // Check if this is a capture
+        if (captured >= 0) {
+            position.removePiece(captured / 6, captured % 6, to);
+            hash ^= Zobrist.piece(captured, to);
+            evaluation -= Evaluation.piece(captured, to);
+            phase -= Evaluation.phase(captured);
         }
         
-        // Check if path is clear
-        return isPathClear(startRow, startCol, endRow, endCol);
-    }
-    
-    private boolean isValidKingMove(int startRow, int startCol, int endRow, int endCol) {
-        // King moves one square in any direction
-        int rowDiff = Math.abs(endRow - startRow);
-        int colDiff = Math.abs(endCol - startCol);
+        // Move the piece
+        int type = position.typeAt(from);
+        position.movePiece(us, type, from, to);
+        hash ^= Zobrist.piece(us * 6 + type, from) ^ Zobrist.piece(us * 6 + type, to);
+        evaluation += Evaluation.piece(us * 6 + type, to) - Evaluation.piece(us * 6 + type, from);
         
-        return rowDiff <= 1 && colDiff <= 1;
+        // Switch turns
+        isWhiteTurn = !isWhiteTurn;
+        hash ^= Zobrist.SIDE;
+        updateCheckInfo();
     }
     
-    private boolean isPathClear(int startRow, int startCol, int endRow, int endCol) {
-        int rowStep = 0;
-        int colStep = 0;
-        
-        if (startRow < endRow) rowStep = 1;
-        else if (startRow > endRow) rowStep = -1;
+    // Take back the last move played with makeMove
+    public void unmakeMove() {
+        if (ply == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        ply--;
+        int move = undoMoves[ply];
+        int captured = undoCaptured[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
         
-        if (startCol < endCol) colStep = 1;
-        else if (startCol > endCol) colStep = -1;
+        // Switch turns back
+        isWhiteTurn = !isWhiteTurn;
+        int us = isWhiteTurn ? Position.WHITE : Position.BLACK;
         
-        int row = startRow + rowStep;
-        int col = startCol + colStep;
+        // Move the piece back and restore anything it captured
+        position.movePiece(us, position.typeAt(to), to, from);
+        if (captured >= 0) {
+            position.addPiece(captured / 6, captured % 6, to);
+        }
+        hash = undoHash[ply];
+        checkers = undoCheckers[ply];
+        pinned = undoPinned[ply];
+        evaluation = undoEvaluation[ply];
+        phase = undoPhase[ply];
+    }
+    
+    // True if the player to move is in check
+    public boolean inCheck() {
+        return checkers != 0;
+    }
+    
+    // True if the player to move is in check and has no legal move
+    public boolean isCheckmate() {
+        return checkers != 0 && generateMoves(statusMoves) == 0;
+    }
+    
+    // True if the player to move is not in check but has no legal move
+    public boolean isStalemate() {
+        return checkers == 0 && generateMoves(statusMoves) == 0;
+    }
+    
+    // Enemy pieces currently giving check, as a bitboard
+    public long getCheckers() {
+        return checkers;
+    }
+    
+    // Find the checkers and pinned pieces for the player to move
+    private void updateCheckInfo() {
+        int us = isWhiteTurn ? Position.WHITE : Position.BLACK;
+        int them = us ^ 1;
+        long kingBit = position.pieces(us, Position.KING);
+        checkers = 0L;
+        pinned = 0L;
+        if (kingBit == 0) {
+            return;
+        }
         
-        // Check all squares between start and end (not including start and end)
-        while (row != endRow || col != endCol) {
-            if (board[row][col] != null) {
-                return false; // Path is blocked
+        int king = Long.numberOfTrailingZeros(kingBit);
+        long occupied = position.occupied();
+        checkers = attackersTo(king, occupied) & position.colorPieces(them);
+        
+        // Enemy sliders lined up with the king on an empty board; if exactly one piece stands
+        // between them and it is ours, that piece is pinned
+        long queens = position.pieces(them, Position.QUEEN);
+        long snipers = (Rook.attacks(king, 0L) & (position.pieces(them, Position.ROOK) | queens))
+                | (Bishop.attacks(king, 0L) & (position.pieces(them, Position.BISHOP) | queens));
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.between(king, sniper) & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & position.colorPieces(us);
             }
-            row += rowStep;
-            col += colStep;
         }
-        
-        return true;
     }
     
-    public boolean makeMove(int startRow, int startCol, int endRow, int endCol) {
-        if (!isValidMove(startRow, startCol, endRow, endCol)) {
-            return false;
+    // Pieces of either color attacking a square, with the given occupancy blocking sliders
+    private long attackersTo(int square, long occupied) {
+        long bishopsQueens = position.pieces(Position.WHITE, Position.BISHOP) | position.pieces(Position.BLACK, Position.BISHOP)
+                | position.pieces(Position.WHITE, Position.QUEEN) | position.pieces(Position.BLACK, Position.QUEEN);
+        long rooksQueens = position.pieces(Position.WHITE, Position.ROOK) | position.pieces(Position.BLACK, Position.ROOK)
+                | position.pieces(Position.WHITE, Position.QUEEN) | position.pieces(Position.BLACK, Position.QUEEN);
+        return (Pawn.attacks(true, square) & position.pieces(Position.BLACK, Position.PAWN))
+                | (Pawn.attacks(false, square) & position.pieces(Position.WHITE, Position.PAWN))
+                | (Knight.attacks(square) & (position.pieces(Position.WHITE, Position.KNIGHT) | position.pieces(Position.BLACK, Position.KNIGHT)))
+                | (King.attacks(square) & (position.pieces(Position.WHITE, Position.KING) | position.pieces(Position.BLACK, Position.KING)))
+                | (Bishop.attacks(square, occupied) & bishopsQueens)
+                | (Rook.attacks(square, occupied) & rooksQueens);
+    }
+    
+    // Every square attacked by one color's pieces, with the given occupancy blocking sliders
+    private long attackMap(int color, long occupied) {
+        long pawns = position.pieces(color, Position.PAWN);
+        long attacks = color == Position.WHITE
+                ? ((pawns & ~Bitboards.FILE_A) >>> 9) | ((pawns & ~Bitboards.FILE_H) >>> 7)
+                : ((pawns & ~Bitboards.FILE_A) << 7) | ((pawns & ~Bitboards.FILE_H) << 9);
+        
+        long knights = position.pieces(color, Position.KNIGHT);
+        while (knights != 0) {
+            attacks |= Knight.attacks(Long.numberOfTrailingZeros(knights));
+            knights &= knights - 1;
         }
         
-        // Check if this is a capture
-        if (board[endRow][endCol] != null) {
-            capturePiece(endRow, endCol);
+        long diagonalSliders = position.pieces(color, Position.BISHOP) | position.pieces(color, Position.QUEEN);
+        while (diagonalSliders != 0) {
+            attacks |= Bishop.attacks(Long.numberOfTrailingZeros(diagonalSliders), occupied);
+            diagonalSliders &= diagonalSliders - 1;
         }
         
-        // Move the piece
-        board[endRow][endCol] = board[startRow][startCol];
-        board[startRow][startCol] = null;
-        
-        // Update piece position in the list
-        updatePiecePosition(startRow, startCol, endRow, endCol);
-        
-        // Switch turns
-        isWhiteTurn = !isWhiteTurn;
+        long straightSliders = position.pieces(color, Position.ROOK) | position.pieces(color, Position.QUEEN);
+        while (straightSliders != 0) {
+            attacks |= Rook.attacks(Long.numberOfTrailingZeros(straightSliders), occupied);
+            straightSliders &= straightSliders - 1;
+        }
         
-        return true;
+        long kings = position.pieces(color, Position.KING);
+        if (kings != 0) {
+            attacks |= King.attacks(Long.numberOfTrailingZeros(kings));
+        }
+        return attacks;
     }
     
-    private void capturePiece(int row, int col) {
-        String capturedPiece = board[row][col];
-        boolean isWhitePiece = capturedPiece.startsWith("W");
+    // Squares a piece may move to without exposing its king: anywhere, or along the pin if it is pinned
+    private long pinRay(int from, int king) {
+        return (pinned & Bitboards.bit(from)) == 0 ? ~0L : Bitboards.line(king, from);
+    }
+    
+    // Write every legal move for the player to move into buffer as packed ints (see Move).
+    // Returns the number of moves written; buffer should hold at least MAX_MOVES entries.
+    public int generateMoves(int[] buffer) {
+        int us = isWhiteTurn ? Position.WHITE : Position.BLACK;
+        return generateMoves(buffer, 0, ~position.colorPieces(us));
+    }
+    
+    // Same as generateMoves, but only moves that capture a piece
+    public int generateCaptures(int[] buffer) {
+        return generateCaptures(buffer, 0);
+    }
+    
+    // Append the captures to buffer starting at index start; returns the new end index
+    public int generateCaptures(int[] buffer, int start) {
+        int them = isWhiteTurn ? Position.BLACK : Position.WHITE;
+        return generateMoves(buffer, start, position.colorPieces(them));
+    }
+    
+    // Same as generateMoves, but only moves to empty squares
+    public int generateQuiets(int[] buffer) {
+        return generateQuiets(buffer, 0);
+    }
+    
+    // Append the non-captures to buffer starting at index start; returns the new end index
+    public int generateQuiets(int[] buffer, int start) {
+        return generateMoves(buffer, start, ~position.occupied());
+    }
+    
+    // Times one call in EngineMetrics.GENERATION_SAMPLE_INTERVAL: reading the clock on every call
+    // would cost about as much as generating the moves of a small position
+    private int generateMoves(int[] buffer, int count, long targets) {
+        if ((++generations & (EngineMetrics.GENERATION_SAMPLE_INTERVAL - 1)) != 0) {
+            return generateLegal(buffer, count, targets);
+        }
+        long start = System.nanoTime();
+        int end = generateLegal(buffer, count, targets);
+        EngineMetrics.MOVE_GENERATION.record(System.nanoTime() - start);
+        return end;
+    }
+    
+    // Legal moves only: the checkers and pinned pieces found in makeMove restrict where each piece
+    // may go, so no move has to be played and tested for leaving the king in check.
+    private int generateLegal(int[] buffer, int count, long targets) {
+        int us = isWhiteTurn ? Position.WHITE : Position.BLACK;
+        long enemy = position.colorPieces(us ^ 1);
+        long occupied = position.occupied();
+        long kingBit = position.pieces(us, Position.KING);
+        int king = Long.numberOfTrailingZeros(kingBit);
+        
+        // In check the other pieces must capture or block a single checker; in double check they can't move
+        long pieceTargets = targets;
+        if (checkers != 0) {
+            pieceTargets &= (checkers & (checkers - 1)) == 0
+                    ? Bitboards.between(king, Long.numberOfTrailingZeros(checkers)) | checkers : 0L;
+        }
         
-        List<ChessPiece> pieceList = isWhitePiece ? whitePieces : blackPieces;
+        if (pieceTargets != 0) {
+            count = generatePawnMoves(buffer, count, pieceTargets, king);
+            
+            long knights = position.pieces(us, Position.KNIGHT) & ~pinned; // a pinned knight can never move
+            while (knights != 0) {
+                int from = Long.numberOfTrailingZeros(knights);
+                knights &= knights - 1;
+                count = addMoves(buffer, count, from, Knight.attacks(from) & pieceTargets, enemy);
+            }
+            
+            long diagonalSliders = position.pieces(us, Position.BISHOP) | position.pieces(us, Position.QUEEN);
+            while (diagonalSliders != 0) {
+                int from = Long.numberOfTrailingZeros(diagonalSliders);
+                diagonalSliders &= diagonalSliders - 1;
+                count = addMoves(buffer, count, from, Bishop.attacks(from, occupied) & pieceTargets & pinRay(from, king), enemy);
+            }
+            
+            long straightSliders = position.pieces(us, Position.ROOK) | position.pieces(us, Position.QUEEN);
+            while (straightSliders != 0) {
+                int from = Long.numberOfTrailingZeros(straightSliders);
+                straightSliders &= straightSliders - 1;
+                count = addMoves(buffer, count, from, Rook.attacks(from, occupied) & pieceTargets & pinRay(from, king), enemy);
+            }
+        }
         
-        // Find and remove the piece from the appropriate list
-        for (int i = 0; i < pieceList.size(); i++) {
-            ChessPiece piece = pieceList.get(i);
-            if (piece.getRow() == row && piece.getCol() == col) {
-                pieceList.remove(i);
-                System.out.println("Captured: " + capturedPiece);
-                break;
+        // The king may go anywhere the enemy doesn't attack once it has left its square
+        if (kingBit != 0) {
+            long kingTargets = King.attacks(king) & targets;
+            if (kingTargets != 0) {
+                kingTargets &= ~attackMap(us ^ 1, occupied ^ kingBit);
             }
+            count = addMoves(buffer, count, king, kingTargets, enemy);
         }
+        
+        return count;
     }
     
-    private void updatePiecePosition(int startRow, int startCol, int endRow, int endCol) {
-        boolean isWhitePiece = board[endRow][endCol].startsWith("W");
-        List<ChessPiece> pieceList = isWhitePiece ? whitePieces : blackPieces;
-        
-        for (ChessPiece piece : pieceList) {
-            if (piece.getRow() == startRow && piece.getCol() == startCol) {
-                piece.setRow(endRow);
-                piece.setCol(endCol);
-                break;
+    private int generatePawnMoves(int[] buffer, int count, long targets, int king) {
+        boolean isWhite = isWhiteTurn;
+        int us = isWhite ? Position.WHITE : Position.BLACK;
+        long pawns = position.pieces(us, Position.PAWN);
+        long empty = ~position.occupied();
+        long enemy = position.colorPieces(us ^ 1) & targets;
+        
+        // Pushes (white pawns move towards row 0, black pawns towards row 7)
+        long singles = (isWhite ? pawns >>> 8 : pawns << 8) & empty;
+        long doubles = (isWhite ? (singles & Bitboards.rowMask(5)) >>> 8 : (singles & Bitboards.rowMask(2)) << 8) & empty;
+        int forward = isWhite ? -8 : 8;
+        count = addPawnMoves(buffer, count, singles & targets, forward, Move.QUIET, king);
+        count = addPawnMoves(buffer, count, doubles & targets, 2 * forward, Move.DOUBLE_PAWN_PUSH, king);
+        
+        // Diagonal captures towards the A file and towards the H file
+        long leftCaptures = (isWhite ? (pawns & ~Bitboards.FILE_A) >>> 9 : (pawns & ~Bitboards.FILE_A) << 7) & enemy;
+        long rightCaptures = (isWhite ? (pawns & ~Bitboards.FILE_H) >>> 7 : (pawns & ~Bitboards.FILE_H) << 9) & enemy;
+        count = addPawnMoves(buffer, count, leftCaptures, forward - 1, Move.CAPTURE, king);
+        count = addPawnMoves(buffer, count, rightCaptures, forward + 1, Move.CAPTURE, king);
+        
+        return count;
+    }
+    
+    private int addPawnMoves(int[] buffer, int count, long destinations, int offset, int flags, int king) {
+        while (destinations != 0) {
+            int to = Long.numberOfTrailingZeros(destinations);
+            destinations &= destinations - 1;
+            int from = to - offset;
+            if ((pinned & Bitboards.bit(from)) == 0 || (Bitboards.line(king, from) & Bitboards.bit(to)) != 0) {
+                buffer[count++] = Move.encode(from, to, flags);
             }
         }
+        return count;
+    }
+    
+    private static int addMoves(int[] buffer, int count, int from, long destinations, long enemy) {
+        while (destinations != 0) {
+            int to = Long.numberOfTrailingZeros(destinations);
+            destinations &= destinations - 1;
+            int flags = (enemy & Bitboards.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET;
+            buffer[count++] = Move.encode(from, to, flags);
+        }
+        return count;
+    }
+    
+    // Piece on a square, or null if empty
+    public Piece getPieceAt(int row, int col) {
+        return position.getPiece(Bitboards.square(row, col));
+    }
+    
+    // Old String[][]-style view of the whole board (a fresh copy)
+    public String[][] getBoard() {
+        return position.toArray();
+    }
+    
+    public Position getPosition() {
+        return position;
+    }
+    
+    // Tapered material and piece-square score in centipawns for the player to move.
+    // Only combines the incrementally kept totals, so it costs no board scan.
+    public int evaluate() {
+        int score = Evaluation.taper(evaluation, phase);
+        return isWhiteTurn ? score : -score;
+    }
+    
+    // 64-bit Zobrist key of the current position (pieces and side to move)
+    public long getHash() {
+        return hash;
+    }
+    
+    // The last move played with makeMove, or Move.NONE if there is none to take back
+    public int getLastMove() {
+        return ply == 0 ? Move.NONE : undoMoves[ply - 1];
     }
     
     public List<ChessPiece> getWhitePieces() {
@@ -243,47 +646,67 @@ public class ChessGame {
         return isWhiteTurn;
     }
     
-    // Inner class to represent a chess piece
+    // Hand the moves validated since the last flush to EngineMetrics
+    public void flushMetrics() {
+        EngineMetrics.MOVES_VALIDATED.add(unflushedValidations);
+        unflushedValidations = 0;
+    }
+    
+    // Read-only list view over one color's entries in the piece registry; each get() describes
+    // the piece as it stands now, and pieces are moved through makeMove
+    private class PieceListView extends AbstractList<ChessPiece> {
+        private final int color;
+        
+        PieceListView(int color) {
+            this.color = color;
+        }
+        
+        @Override
+        public ChessPiece get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            int square = position.registry().square(color, index);
+            return new ChessPiece(position.getPiece(square), Bitboards.row(square), Bitboards.col(square));
+        }
+        
+        @Override
+        public int size() {
+            return position.registry().count(color);
+        }
+    }
+    
+    // Inner class to represent a chess piece (a snapshot: it doesn't follow the piece when it moves)
     public class ChessPiece {
-        private String type;
-        private boolean isWhite;
-        private int row;
-        private int col;
-        
-        public ChessPiece(String type, boolean isWhite, int row, int col) {
-            this.type = type;
-            this.isWhite = isWhite;
+        private final Piece piece;
+        private final int row;
+        private final int col;
+        
+        public ChessPiece(Piece piece, int row, int col) {
+            this.piece = piece;
             this.row = row;
             this.col = col;
         }
         
-        public String getType() {
-            return type;
+        public Piece getPiece() {
+            return piece;
         }
         
         public boolean isWhite() {
-            return isWhite;
+            return piece.isWhite();
         }
         
         public int getRow() {
             return row;
         }
         
-        public void setRow(int row) {
-            this.row = row;
-        }
-        
         public int getCol() {
             return col;
         }
         
-        public void setCol(int col) {
-            this.col = col;
-        }
-        
         @Override
         public String toString() {
-            return (isWhite ? "W-" : "B-") + type + " at (" + row + "," + col + ")";
+            return piece + " at (" + row + "," + col + ")";
         }
     }
 } 
\ No newline at end of file
@@ -30,159 +30,156 @@ public class ChessPieceImageGenerator {
     }
     
     private static void generatePieceImages() throws IOException {
-        // White pieces
-        generatePawn(true);
-        generateRook(true);
-        generateKnight(true);
-        generateBishop(true);
-        generateQueen(true);
-        generateKing(true);
-        
-        // Black pieces
-        generatePawn(false);
-        generateRook(false);
-        generateKnight(false);
-        generateBishop(false);
-        generateQueen(false);
-        generateKing(false);
+        // "white_pawn.png", "black_king.png", ...
+        for (Piece piece : Piece.values()) {
+            savePieceImage(render(piece, IMAGE_SIZE), piece.name().toLowerCase() + ".png");
+        }
     }
     
-    private static void generatePawn(boolean isWhite) throws IOException {
-        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+    // A piece drawn into a new transparent size x size image
+    public static BufferedImage render(Piece piece, int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g2d = image.createGraphics();
-        setupGraphics(g2d);
-        
+        setupGraphics(g2d, size);
+        drawPiece(g2d, piece, size);
+        g2d.dispose();
+        return image;
+    }
+    
+    // Draw a piece into the size x size square at the origin of g2d.
+    // The shapes are plain Java2D fills, so this is cheap enough to call while painting.
+    public static void drawPiece(Graphics2D graphics, Piece piece, int size) {
+        Graphics2D g2d = (Graphics2D) graphics.create();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        boolean isWhite = piece.isWhite();
+        switch (piece.type()) {
+            case Position.PAWN:
+                drawPawn(g2d, isWhite, size);
+                break;
+            case Position.KNIGHT:
+                drawKnight(g2d, isWhite, size);
+                break;
+            case Position.BISHOP:
+                drawBishop(g2d, isWhite, size);
+                break;
+            case Position.ROOK:
+                drawRook(g2d, isWhite, size);
+                break;
+            case Position.QUEEN:
+                drawQueen(g2d, isWhite, size);
+                break;
+            default:
+                drawKing(g2d, isWhite, size);
+                break;
+        }
+        g2d.dispose();
+    }
+    
+    private static void drawPawn(Graphics2D g2d, boolean isWhite, int size) {
         Color pieceColor = isWhite ? Color.WHITE : Color.DARK_GRAY;
         g2d.setColor(pieceColor);
         
         // Draw pawn
-        int baseDiameter = IMAGE_SIZE / 3;
-        int topDiameter = IMAGE_SIZE / 4;
+        int baseDiameter = size / 3;
+        int topDiameter = size / 4;
         
         // Base
-        g2d.fillOval(IMAGE_SIZE/2 - baseDiameter/2, IMAGE_SIZE - baseDiameter - 5, baseDiameter, baseDiameter/2);
+        g2d.fillOval(size/2 - baseDiameter/2, size - baseDiameter - size/12, baseDiameter, baseDiameter/2);
         
         // Stem
-        g2d.fillRect(IMAGE_SIZE/2 - baseDiameter/6, IMAGE_SIZE/2, baseDiameter/3, IMAGE_SIZE/3);
+        g2d.fillRect(size/2 - baseDiameter/6, size/2, baseDiameter/3, size/3);
         
         // Head
-        g2d.fillOval(IMAGE_SIZE/2 - topDiameter/2, IMAGE_SIZE/3, topDiameter, topDiameter);
-        
-        g2d.dispose();
-        savePieceImage(image, (isWhite ? "white" : "black") + "_pawn.png");
+        g2d.fillOval(size/2 - topDiameter/2, size/3, topDiameter, topDiameter);
     }
     
-    private static void generateRook(boolean isWhite) throws IOException {
-        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-        setupGraphics(g2d);
-        
+    private static void drawRook(Graphics2D g2d, boolean isWhite, int size) {
         Color pieceColor = isWhite ? Color.WHITE : Color.DARK_GRAY;
         g2d.setColor(pieceColor);
         
         // Base
-        g2d.fillRect(IMAGE_SIZE/4, IMAGE_SIZE*3/4, IMAGE_SIZE/2, IMAGE_SIZE/6);
+        g2d.fillRect(size/4, size*3/4, size/2, size/6);
         
         // Body
-        g2d.fillRect(IMAGE_SIZE/3, IMAGE_SIZE/3, IMAGE_SIZE/3, IMAGE_SIZE*2/4);
+        g2d.fillRect(size/3, size/3, size/3, size*2/4);
         
         // Top battlements
-        int battlementWidth = IMAGE_SIZE/10;
-        g2d.fillRect(IMAGE_SIZE/4, IMAGE_SIZE/5, battlementWidth, battlementWidth);
-        g2d.fillRect(IMAGE_SIZE/2 - battlementWidth/2, IMAGE_SIZE/5, battlementWidth, battlementWidth);
-        g2d.fillRect(IMAGE_SIZE*3/4 - battlementWidth, IMAGE_SIZE/5, battlementWidth, battlementWidth);
-        
-        g2d.dispose();
-        savePieceImage(image, (isWhite ? "white" : "black") + "_rook.png");
+        int battlementWidth = size/10;
+        g2d.fillRect(size/4, size/5, battlementWidth, battlementWidth);
+        g2d.fillRect(size/2 - battlementWidth/2, size/5, battlementWidth, battlementWidth);
+        g2d.fillRect(size*3/4 - battlementWidth, size/5, battlementWidth, battlementWidth);
     }
     
-    private static void generateKnight(boolean isWhite) throws IOException {
-        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-        setupGraphics(g2d);
-        
+    private static void drawKnight(Graphics2D g2d, boolean isWhite, int size) {
         Color pieceColor = isWhite ? Color.WHITE : Color.DARK_GRAY;
         g2d.setColor(pieceColor);
         
         // Base
-        g2d.fillRect(IMAGE_SIZE/4, IMAGE_SIZE*3/4, IMAGE_SIZE/2, IMAGE_SIZE/6);
+        g2d.fillRect(size/4, size*3/4, size/2, size/6);
         
         // Knight shape (horse head)
         int[] xPoints = {
-            IMAGE_SIZE/4, 
-            IMAGE_SIZE/3, 
-            IMAGE_SIZE/2, 
-            IMAGE_SIZE*2/3, 
-            IMAGE_SIZE*2/3, 
-            IMAGE_SIZE/2, 
-            IMAGE_SIZE/3
+            size/4, 
+            size/3, 
+            size/2, 
+            size*2/3, 
+            size*2/3, 
+            size/2, 
+            size/3
         };
         
         int[] yPoints = {
-            IMAGE_SIZE*3/4, 
-            IMAGE_SIZE/2, 
-            IMAGE_SIZE/3, 
-            IMAGE_SIZE/4, 
-            IMAGE_SIZE/2, 
-            IMAGE_SIZE*2/3, 
-            IMAGE_SIZE*3/4
+            size*3/4, 
+            size/2, 
+            size/3, 
+            size/4, 
+            size/2, 
+            size*2/3, 
+            size*3/4
         };
         
         g2d.fillPolygon(xPoints, yPoints, xPoints.length);
         
         // Eye
         g2d.setColor(isWhite ? Color.BLACK : Color.LIGHT_GRAY);
-        g2d.fillOval(IMAGE_SIZE*9/20, IMAGE_SIZE*2/5, IMAGE_SIZE/10, IMAGE_SIZE/10);
-        
-        g2d.dispose();
-        savePieceImage(image, (isWhite ? "white" : "black") + "_knight.png");
+        g2d.fillOval(size*9/20, size*2/5, size/10, size/10);
     }
     
-    private static void generateBishop(boolean isWhite) throws IOException {
-        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-        setupGraphics(g2d);
-        
+    private static void drawBishop(Graphics2D g2d, boolean isWhite, int size) {
         Color pieceColor = isWhite ? Color.WHITE : Color.DARK_GRAY;
         g2d.setColor(pieceColor);
         
         // Base
-        g2d.fillRect(IMAGE_SIZE/4, IMAGE_SIZE*3/4, IMAGE_SIZE/2, IMAGE_SIZE/6);
+        g2d.fillRect(size/4, size*3/4, size/2, size/6);
         
         // Body
-        g2d.fillOval(IMAGE_SIZE/3, IMAGE_SIZE/3, IMAGE_SIZE/3, IMAGE_SIZE/2);
+        g2d.fillOval(size/3, size/3, size/3, size/2);
         
         // Top
-        g2d.fillOval(IMAGE_SIZE*2/5, IMAGE_SIZE/5, IMAGE_SIZE/5, IMAGE_SIZE/5);
+        g2d.fillOval(size*2/5, size/5, size/5, size/5);
         
         // Cross on top
         g2d.setColor(isWhite ? Color.BLACK : Color.LIGHT_GRAY);
-        g2d.fillRect(IMAGE_SIZE/2 - 2, IMAGE_SIZE/8, 4, IMAGE_SIZE/5);
-        g2d.fillRect(IMAGE_SIZE*2/5, IMAGE_SIZE/5, IMAGE_SIZE/5, 4);
-        
-        g2d.dispose();
-        savePieceImage(image, (isWhite ? "white" : "black") + "_bishop.png");
+        g2d.fillRect(size/2 - size/30, size/8, size/15, size/5);
+        g2d.fillRect(size*2/5, size/5, size/5, size/15);
     }
     
-    private static void generateQueen(boolean isWhite) throws IOException {
-        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-        setupGraphics(g2d);
-        
+    private static void drawQueen(Graphics2D g2d, boolean isWhite, int size) {
         Color pieceColor = isWhite ? Color.WHITE : Color.DARK_GRAY;
         g2d.setColor(pieceColor);
         
         // Base
-        g2d.fillRect(IMAGE_SIZE/4, IMAGE_SIZE*3/4, IMAGE_SIZE/2, IMAGE_SIZE/6);
+        g2d.fillRect(size/4, size*3/4, size/2, size/6);
         
         // Body
-        g2d.fillOval(IMAGE_SIZE/3, IMAGE_SIZE/3, IMAGE_SIZE/3, IMAGE_SIZE/2);
+        g2d.fillOval(size/3, size/3, size/3, size/2);
         
         // Crown
-        int crownWidth = IMAGE_SIZE/2;
-        int crownHeight = IMAGE_SIZE/6;
-        int crownX = IMAGE_SIZE/2 - crownWidth/2;
-        int crownY = IMAGE_SIZE/5;
+        int crownWidth = size/2;
+        int crownHeight = size/6;
+        int crownX = size/2 - crownWidth/2;
+        int crownY = size/5;
         
         int[] xPoints = {
             crownX, 
@@ -207,42 +204,30 @@ public class ChessPieceImageGenerator {
         };
         
         g2d.fillPolygon(xPoints, yPoints, xPoints.length);
-        
-        g2d.dispose();
-        savePieceImage(image, (isWhite ? "white" : "black") + "_queen.png");
     }
     
-    private static void generateKing(boolean isWhite) throws IOException {
-        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-        setupGraphics(g2d);
-        
+    private static void drawKing(Graphics2D g2d, boolean isWhite, int size) {
         Color pieceColor = isWhite ? Color.WHITE : Color.DARK_GRAY;
         g2d.setColor(pieceColor);
         
         // Base
-        g2d.fillRect(IMAGE_SIZE/4, IMAGE_SIZE*3/4, IMAGE_SIZE/2, IMAGE_SIZE/6);
+        g2d.fillRect(size/4, size*3/4, size/2, size/6);
         
         // Body
-        g2d.fillOval(IMAGE_SIZE/3, IMAGE_SIZE/3, IMAGE_SIZE/3, IMAGE_SIZE/2);
+        g2d.fillOval(size/3, size/3, size/3, size/2);
         
         // Crown
-        g2d.fillRect(IMAGE_SIZE/3, IMAGE_SIZE/5, IMAGE_SIZE/3, IMAGE_SIZE/8);
+        g2d.fillRect(size/3, size/5, size/3, size/8);
         
         // Cross on top
-        int crossWidth = IMAGE_SIZE/8;
-        g2d.fillRect(IMAGE_SIZE/2 - crossWidth/2, IMAGE_SIZE/12, crossWidth, IMAGE_SIZE/4);
-        g2d.fillRect(IMAGE_SIZE/3, IMAGE_SIZE/6, IMAGE_SIZE/3, crossWidth);
-        
-        g2d.dispose();
-        savePieceImage(image, (isWhite ? "white" : "black") + "_king.png");
+        int crossWidth = size/8;
+        g2d.fillRect(size/2 - crossWidth/2, size/12, crossWidth, size/4);
+        g2d.fillRect(size/3, size/6, size/3, crossWidth);
     }
     
-    private static void setupGraphics(Graphics2D g2d) {
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    private static void setupGraphics(Graphics2D g2d, int size) {
         g2d.setBackground(new Color(0, 0, 0, 0)); // Transparent background
-        g2d.clearRect(0, 0, IMAGE_SIZE, IMAGE_SIZE);
+        g2d.clearRect(0, 0, size, size);
     }
     
     private static void savePieceImage(BufferedImage image, String fileName) throws IOException {
@@ -0,0 +1,161 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and histograms for the engine and the board, readable over JMX (jconsole, VisualVM,
+// any JMX agent) once register() has been called.
+// The hot paths don't touch these on every event: ChessGame and Search count in plain fields of
+// their own and add their totals here in batches, and move generation is only timed for a sample
+// of calls, so a search runs at full speed whether or not anyone is watching.
+public class EngineMetrics implements EngineMetricsMXBean {
+    public static final String OBJECT_NAME = "chess:type=EngineMetrics";
+
+    // Time one move generation in this many (a power of two)
+    public static final int GENERATION_SAMPLE_INTERVAL = 256;
+
+    public static final LongAdder MOVES_VALIDATED = new LongAdder();
+    public static final LatencyHistogram MOVE_GENERATION = new LatencyHistogram();
+    public static final LongAdder SEARCH_NODES = new LongAdder();
+    public static final LongAdder TABLE_PROBES = new LongAdder();
+    public static final LongAdder TABLE_HITS = new LongAdder();
+    public static final LongAdder SPRITE_REQUESTS = new LongAdder();
+    public static final LongAdder SPRITE_HITS = new LongAdder();
+    public static final LatencyHistogram SUGGESTION_LATENCY = new LatencyHistogram();
+
+    private static EngineMetrics instance;
+
+    // Per-second rates, worked out by the sampler from the change in the totals
+    private volatile double movesValidatedPerSecond;
+    private volatile double searchNodesPerSecond;
+    private long lastSampleTime = System.nanoTime();
+    private long lastMovesValidated;
+    private long lastSearchNodes;
+
+    private EngineMetrics() {
+    }
+
+    // Publish the metrics on the platform MBean server (once; later calls do nothing)
+    public static synchronized void register() {
+        if (instance != null) {
+            return;
+        }
+        instance = new EngineMetrics();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // Not through AsyncLogger: standard output is the protocol stream when running as a UCI engine
+            System.err.println("Could not register " + OBJECT_NAME + ": " + e.getMessage());
+            return;
+        }
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(instance::sample, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private synchronized void sample() {
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleTime) / 1e9;
+        long movesValidated = MOVES_VALIDATED.sum();
+        long searchNodes = SEARCH_NODES.sum();
+        movesValidatedPerSecond = Math.max(0, movesValidated - lastMovesValidated) / seconds;
+        searchNodesPerSecond = Math.max(0, searchNodes - lastSearchNodes) / seconds;
+        lastSampleTime = now;
+        lastMovesValidated = movesValidated;
+        lastSearchNodes = searchNodes;
+    }
+
+    @Override
+    public long getMovesValidated() {
+        return MOVES_VALIDATED.sum();
+    }
+
+    @Override
+    public double getMovesValidatedPerSecond() {
+        return movesValidatedPerSecond;
+    }
+
+    @Override
+    public long getMoveGenerationSamples() {
+        return MOVE_GENERATION.count();
+    }
+
+    @Override
+    public long getMoveGenerationMedianNanos() {
+        return MOVE_GENERATION.percentile(0.5);
+    }
+
+    @Override
+    public long getMoveGeneration99thPercentileNanos() {
+        return MOVE_GENERATION.percentile(0.99);
+    }
+
+    @Override
+    public long getSearchNodes() {
+        return SEARCH_NODES.sum();
+    }
+
+    @Override
+    public double getSearchNodesPerSecond() {
+        return searchNodesPerSecond;
+    }
+
+    @Override
+    public double getTranspositionTableHitRate() {
+        return rate(TABLE_HITS.sum(), TABLE_PROBES.sum());
+    }
+
+    @Override
+    public double getSpriteCacheHitRate() {
+        return rate(SPRITE_HITS.sum(), SPRITE_REQUESTS.sum());
+    }
+
+    @Override
+    public long getSuggestions() {
+        return SUGGESTION_LATENCY.count();
+    }
+
+    @Override
+    public double getSuggestionMedianMillis() {
+        return SUGGESTION_LATENCY.percentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getSuggestion90thPercentileMillis() {
+        return SUGGESTION_LATENCY.percentile(0.9) / 1e6;
+    }
+
+    @Override
+    public double getSuggestion99thPercentileMillis() {
+        return SUGGESTION_LATENCY.percentile(0.99) / 1e6;
+    }
+
+    @Override
+    public long getDroppedLogLines() {
+        return AsyncLogger.getDropped();
+    }
+
+    @Override
+    public synchronized void reset() {
+        MOVES_VALIDATED.reset();
+        MOVE_GENERATION.reset();
+        SEARCH_NODES.reset();
+        TABLE_PROBES.reset();
+        TABLE_HITS.reset();
+        SPRITE_REQUESTS.reset();
+        SPRITE_HITS.reset();
+        SUGGESTION_LATENCY.reset();
+        lastMovesValidated = 0;
+        lastSearchNodes = 0;
+    }
+
+    private static double rate(long hits, long total) {
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,35 @@
+// Engine and game metrics published over JMX as "chess:type=EngineMetrics" (see EngineMetrics).
+// Counts are totals since start (or the last reset); rates are over the last second.
+public interface EngineMetricsMXBean {
+    long getMovesValidated();
+
+    double getMovesValidatedPerSecond();
+
+    // Move generation is timed for one call in GENERATION_SAMPLE_INTERVAL per game
+    long getMoveGenerationSamples();
+
+    long getMoveGenerationMedianNanos();
+
+    long getMoveGeneration99thPercentileNanos();
+
+    long getSearchNodes();
+
+    double getSearchNodesPerSecond();
+
+    double getTranspositionTableHitRate();
+
+    double getSpriteCacheHitRate();
+
+    // Suggestions shown, from the button press to the final answer
+    long getSuggestions();
+
+    double getSuggestionMedianMillis();
+
+    double getSuggestion90thPercentileMillis();
+
+    double getSuggestion99thPercentileMillis();
+
+    long getDroppedLogLines();
+
+    void reset();
+}
@@ -0,0 +1,113 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder events for the game, the search and the board, so one recording shows engine
+// work and event dispatch thread handlers next to GC pauses and safepoints. Record with e.g.
+//   java -XX:StartFlightRecording=filename=chess.jfr -cp MainCode ChessBoard
+// and open the file in JDK Mission Control (the events are under "Chess").
+// Callers use the begin / end / shouldCommit pattern and only fill in the fields when the event will
+// be committed, so with no recording running an event costs no more than an unused allocation,
+// which the JIT removes.
+public final class FlightEvents {
+    private FlightEvents() {
+    }
+
+    @Name("chess.MoveValidation")
+    @Label("Move Validation")
+    @Category("Chess")
+    @Description("ChessGame.isValidMove")
+    @StackTrace(false)
+    public static class MoveValidation extends Event {
+        @Label("Move")
+        public String move;
+
+        @Label("Valid")
+        public boolean valid;
+    }
+
+    @Name("chess.MakeMove")
+    @Label("Make Move")
+    @Category("Chess")
+    @Description("ChessGame.makeMove from squares: validating and playing a move")
+    @StackTrace(false)
+    public static class MakeMove extends Event {
+        @Label("Move")
+        public String move;
+
+        @Label("Piece")
+        public String piece;
+
+        @Label("Captured")
+        public String captured;
+
+        @Label("Made")
+        public boolean made;
+    }
+
+    @Name("chess.SearchIteration")
+    @Label("Search Iteration")
+    @Category("Chess")
+    @Description("One iteration of iterative deepening on one search thread")
+    @StackTrace(false)
+    public static class SearchIteration extends Event {
+        @Label("Search Thread")
+        @Description("0 for the main search, 1 and up for Lazy SMP helpers")
+        public int searchThread;
+
+        @Label("Depth")
+        public int depth;
+
+        @Label("Nodes")
+        public long nodes;
+
+        @Label("Score")
+        public int score;
+
+        @Label("Best Move")
+        public String bestMove;
+
+        @Label("Completed")
+        @Description("False if the search was stopped during the iteration")
+        public boolean completed;
+    }
+
+    @Name("chess.BoardAction")
+    @Label("Board Action")
+    @Category("Chess")
+    @Description("A ChessBoard handler running on the event dispatch thread")
+    @StackTrace(false)
+    public static class BoardAction extends Event {
+        @Label("Action")
+        public String action;
+
+        @Label("Square")
+        public String square;
+    }
+
+    @Name("chess.Suggestion")
+    @Label("Suggestion")
+    @Category("Chess")
+    @Description("From pressing a suggestion button to the answer being shown")
+    @StackTrace(false)
+    public static class Suggestion extends Event {
+        @Label("Source")
+        @Description("search, book, tablebase or capture")
+        public String source;
+
+        @Label("Move")
+        public String move;
+
+        @Label("Depth")
+        public int depth;
+
+        @Label("Nodes")
+        public long nodes;
+
+        @Label("Score")
+        public int score;
+    }
+}
@@ -1,5 +1,10 @@
+import java.io.IOException;
+
+// Entry point for the headless engine: speaks UCI on stdin/stdout without loading any GUI classes.
+// Run ChessBoard instead for the Swing board.
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Hello world!");
+    public static void main(String[] args) throws IOException {
+        EngineMetrics.register();
+        new UciEngine(System.in, System.out).run();
     }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+// Moves packed into a single int so move lists can live in plain int[] buffers.
+// Bits 0-5: start square, bits 6-11: end square, bits 12-15: flags.
+public final class Move {
+    public static final int NONE = 0;
+
+    // Flags
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int CAPTURE = 4;
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flags(move) & CAPTURE) != 0;
+    }
+
+    // Coordinate notation such as "e2e4"
+    public static String toString(int move) {
+        return squareName(from(move)) + squareName(to(move));
+    }
+
+    public static String squareName(int square) {
+        char file = (char) ('a' + Bitboards.col(square));
+        int rank = 8 - Bitboards.row(square);
+        return "" + file + rank;
+    }
+}
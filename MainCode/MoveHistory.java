@@ -0,0 +1,56 @@
+import java.util.Arrays;
+
+// Move ordering statistics gathered by one search thread, for MovePicker:
+//   killers - per ply, the last two quiet moves that caused a beta cutoff there; a move that refuted
+//             one position often refutes its siblings too
+//   history - a butterfly table (side, from square, to square) of how often a quiet move caused a
+//             cutoff anywhere in the tree, weighted by depth squared so cutoffs near the root count most
+public class MoveHistory {
+    private static final int MAX_SCORE = 1 << 24;
+
+    private final int[][] killers;
+    private final int[] history = new int[2 * 64 * 64];
+
+    public MoveHistory(int maxPly) {
+        killers = new int[maxPly][2];
+    }
+
+    // Start a new search: killers are forgotten and history is halved, so the latest results weigh most
+    public void newSearch() {
+        for (int[] slots : killers) {
+            Arrays.fill(slots, Move.NONE);
+        }
+        age();
+    }
+
+    public int killer(int ply, int slot) {
+        return killers[ply][slot];
+    }
+
+    public int score(int color, int move) {
+        return history[index(color, move)];
+    }
+
+    // A quiet move caused a beta cutoff at this ply, with this much depth left
+    public void recordCutoff(int color, int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = index(color, move);
+        history[index] += depth * depth;
+        if (history[index] > MAX_SCORE) {
+            age();
+        }
+    }
+
+    private void age() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    private static int index(int color, int move) {
+        return (color << 12) | (Move.from(move) << 6) | Move.to(move);
+    }
+}
@@ -0,0 +1,175 @@
+// Hands out the moves of one position best-first, a stage at a time:
+//   1. the hash move from the transposition table
+//   2. good captures: most valuable victim first, then least valuable attacker (MVV-LVA)
+//   3. the two killer moves of the ply
+//   4. the other quiet moves, highest history score first
+//   5. bad captures: a piece taking a less valuable, defended piece
+// A stage is only generated once the ones before it run out, so a cutoff on the hash move or a
+// capture never pays for generating the quiet moves. Within a stage the best remaining move is
+// selected on demand, so no more sorting is done than moves are actually searched.
+// One picker per ply is reused for every node searched at that ply.
+public class MovePicker {
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int KILLERS = 3;
+    private static final int GENERATE_QUIETS = 4;
+    private static final int QUIETS = 5;
+    private static final int BAD_CAPTURES = 6;
+    private static final int DONE = 7;
+
+    private static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 20000};
+
+    private final ChessGame game;
+    private final MoveHistory history;
+    private final int ply;
+
+    private final int[] moves = new int[ChessGame.MAX_MOVES];
+    private final int[] scores = new int[ChessGame.MAX_MOVES];
+    private final int[] badCaptures = new int[ChessGame.MAX_MOVES];
+    private final int[] killers = new int[2];
+
+    private int stage = DONE;
+    private boolean capturesOnly;
+    private int hashMove;
+    private int next;
+    private int end;
+    private int killerIndex;
+    private int badCount;
+    private int badNext;
+
+    public MovePicker(ChessGame game, MoveHistory history, int ply) {
+        this.game = game;
+        this.history = history;
+        this.ply = ply;
+    }
+
+    // Start on all legal moves of the current position, trying hashMove first if it is legal here
+    public void init(int hashMove) {
+        this.hashMove = game.isLegalMove(hashMove) ? hashMove : Move.NONE;
+        killers[0] = history.killer(ply, 0);
+        killers[1] = history.killer(ply, 1);
+        capturesOnly = false;
+        stage = HASH;
+        badCount = 0;
+        badNext = 0;
+    }
+
+    // Start on the captures only (quiescence search)
+    public void initCaptures() {
+        hashMove = Move.NONE;
+        capturesOnly = true;
+        stage = GENERATE_CAPTURES;
+        badCount = 0;
+        badNext = 0;
+    }
+
+    // The next move to search, or Move.NONE when there are no more
+    public int next() {
+        while (true) {
+            switch (stage) {
+                case HASH:
+                    stage = GENERATE_CAPTURES;
+                    if (hashMove != Move.NONE) {
+                        return hashMove;
+                    }
+                    break;
+                case GENERATE_CAPTURES:
+                    end = game.generateCaptures(moves, 0);
+                    next = 0;
+                    scoreCaptures();
+                    stage = GOOD_CAPTURES;
+                    break;
+                case GOOD_CAPTURES:
+                    while (next < end) {
+                        int move = pickBest();
+                        if (move == hashMove) {
+                            continue;
+                        }
+                        if (isBadCapture(move)) {
+                            badCaptures[badCount++] = move; // Tried after the quiet moves
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = capturesOnly ? BAD_CAPTURES : KILLERS;
+                    killerIndex = 0;
+                    break;
+                case KILLERS:
+                    while (killerIndex < killers.length) {
+                        int killer = killers[killerIndex++];
+                        if (killer != hashMove && !Move.isCapture(killer) && game.isLegalMove(killer)) {
+                            return killer;
+                        }
+                    }
+                    stage = GENERATE_QUIETS;
+                    break;
+                case GENERATE_QUIETS:
+                    end = game.generateQuiets(moves, 0);
+                    next = 0;
+                    scoreQuiets();
+                    stage = QUIETS;
+                    break;
+                case QUIETS:
+                    while (next < end) {
+                        int move = pickBest();
+                        if (move != hashMove && move != killers[0] && move != killers[1]) {
+                            return move;
+                        }
+                    }
+                    stage = BAD_CAPTURES;
+                    break;
+                case BAD_CAPTURES:
+                    if (badNext < badCount) {
+                        return badCaptures[badNext++];
+                    }
+                    stage = DONE;
+                    break;
+                default:
+                    return Move.NONE;
+            }
+        }
+    }
+
+    private void scoreCaptures() {
+        Position position = game.getPosition();
+        for (int i = 0; i < end; i++) {
+            int victim = position.typeAt(Move.to(moves[i]));
+            int attacker = position.typeAt(Move.from(moves[i]));
+            scores[i] = victim * 8 + Position.KING - attacker;
+        }
+    }
+
+    private void scoreQuiets() {
+        int us = game.isWhiteTurn() ? Position.WHITE : Position.BLACK;
+        for (int i = 0; i < end; i++) {
+            scores[i] = history.score(us, moves[i]);
+        }
+    }
+
+    // Swap the highest scored move left into place and return it
+    private int pickBest() {
+        int best = next;
+        for (int i = next + 1; i < end; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[next];
+        scores[best] = scores[next];
+        moves[next++] = move;
+        return move;
+    }
+
+    // A more valuable piece taking a less valuable one that is defended probably loses material
+    private boolean isBadCapture(int move) {
+        Position position = game.getPosition();
+        int to = Move.to(move);
+        if (PIECE_VALUES[position.typeAt(to)] >= PIECE_VALUES[position.typeAt(Move.from(move))]) {
+            return false;
+        }
+        int them = game.isWhiteTurn() ? Position.BLACK : Position.WHITE;
+        return game.isAttacked(to, them);
+    }
+}
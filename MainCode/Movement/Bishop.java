@@ -1,4 +1,33 @@
 package Movement;
 
+// Bishop attacks from a precomputed magic-bitboard table (square = row * 8 + col)
 public class Bishop {
+    private static final int[][] DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
+    // Magic multipliers, found offline with a seeded random search over sparse 64-bit numbers
+    private static final long[] MAGICS = {
+        0x2048017020910100L, 0x0044410424008008L, 0x040828A400900000L, 0x8002209200022000L,
+        0x0002021000540002L, 0x0021018840000000L, 0x00009E8420204002L, 0x00A0920110084480L,
+        0x4003062018010110L, 0x0221046812004E09L, 0x01E11002958912A0L, 0x0000044410804000L,
+        0x0000821210000080L, 0x080201102210A800L, 0x0080040411045004L, 0x00704A1842021000L,
+        0x1005061070322800L, 0x0018001010410444L, 0x0010000800401420L, 0x2204002844000800L,
+        0x2052020412022280L, 0x000A020101008208L, 0x0040400201042000L, 0x03E1082040480410L,
+        0x1004200004208414L, 0x08700400984808C8L, 0x0088080004004410L, 0x008C0240140100A2L,
+        0x0008840001822000L, 0x0050088001080100L, 0x98140840040A2200L, 0x3002020900210110L,
+        0x1004040640206000L, 0x1090909000840400L, 0x9002444810100020L, 0x4000020080080080L,
+        0x0028020400011010L, 0x0290808300020100L, 0x8010020882004410L, 0x0604010040082C20L,
+        0x20040104C0801008L, 0x6004208424001050L, 0x1002840041000800L, 0x0200042018000102L,
+        0xA8002000A0821C00L, 0x0040080802201910L, 0x0222620444000100L, 0x0002080041020088L,
+        0x1500820110401050L, 0x0000492090100080L, 0x0900410041100000L, 0x0302000420880000L,
+        0x0010501202020020L, 0x0008200490049040L, 0x0462080214A40120L, 0x2421310102008100L,
+        0x2400420080884060L, 0x0800804406184208L, 0x0B0080124A084400L, 0x082E082300840412L,
+        0x6051049040082200L, 0xC610211002102101L, 0x0000048808010433L, 0x0010200804405440L
+    };
+
+    private static final MagicTable TABLE = new MagicTable(DIRECTIONS, MAGICS);
+
+    // Squares a bishop on the given square attacks, given the occupied squares
+    public static long attacks(int square, long occupied) {
+        return TABLE.attacks(square, occupied);
+    }
 }
@@ -1,4 +1,28 @@
 package Movement;
 
+// Precomputed king attack masks, one 64-bit mask per square (square = row * 8 + col)
 public class King {
+    private static final long[] ATTACKS = new long[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = square >>> 3;
+            int col = square & 7;
+            long mask = 0L;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = row + dr;
+                    int c = col + dc;
+                    if ((dr != 0 || dc != 0) && r >= 0 && r < 8 && c >= 0 && c < 8) {
+                        mask |= 1L << (r * 8 + c);
+                    }
+                }
+            }
+            ATTACKS[square] = mask;
+        }
+    }
+
+    public static long attacks(int square) {
+        return ATTACKS[square];
+    }
 }
@@ -1,4 +1,30 @@
 package Movement;
 
+// Precomputed knight attack masks, one 64-bit mask per square (square = row * 8 + col)
 public class Knight {
+    private static final int[][] OFFSETS = {
+        {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}
+    };
+
+    private static final long[] ATTACKS = new long[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = square >>> 3;
+            int col = square & 7;
+            long mask = 0L;
+            for (int[] offset : OFFSETS) {
+                int r = row + offset[0];
+                int c = col + offset[1];
+                if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                    mask |= 1L << (r * 8 + c);
+                }
+            }
+            ATTACKS[square] = mask;
+        }
+    }
+
+    public static long attacks(int square) {
+        return ATTACKS[square];
+    }
 }
@@ -0,0 +1,85 @@
+package Movement;
+
+// Magic-bitboard attack table for one kind of slider, built once when the owning class loads.
+// For each square the relevant blockers are multiplied by a "magic" number so that every
+// blocker set hashes to a slot holding the matching attack mask: attacks become one lookup.
+final class MagicTable {
+    private final long[] masks = new long[64];
+    private final long[] magics;
+    private final int[] shifts = new int[64];
+    private final long[][] attacks = new long[64][];
+
+    MagicTable(int[][] directions, long[] magics) {
+        this.magics = magics;
+        for (int square = 0; square < 64; square++) {
+            initSquare(square, directions);
+        }
+    }
+
+    long attacks(int square, long occupied) {
+        int index = (int) (((occupied & masks[square]) * magics[square]) >>> shifts[square]);
+        return attacks[square][index];
+    }
+
+    private void initSquare(int square, int[][] directions) {
+        long mask = relevantBlockers(square, directions);
+        int bits = Long.bitCount(mask);
+        long[] table = new long[1 << bits];
+        boolean[] filled = new boolean[table.length];
+
+        // Walk every subset of the relevant blockers and store the attacks it produces
+        long subset = 0L;
+        do {
+            int index = (int) ((subset * magics[square]) >>> (64 - bits));
+            long result = slowAttacks(square, subset, directions);
+            if (filled[index] && table[index] != result) {
+                throw new IllegalStateException("Bad magic number for square " + square);
+            }
+            table[index] = result;
+            filled[index] = true;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+
+        masks[square] = mask;
+        shifts[square] = 64 - bits;
+        attacks[square] = table;
+    }
+
+    // Squares whose occupancy can change the attacks (board edges never block anything beyond them)
+    private static long relevantBlockers(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = (square >>> 3) + direction[0];
+            int col = (square & 7) + direction[1];
+            while (onBoard(row + direction[0], col + direction[1])) {
+                mask |= 1L << (row * 8 + col);
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    // Reference attacks found by walking each ray until it hits a piece (used only to build the table)
+    private static long slowAttacks(int square, long occupied, int[][] directions) {
+        long result = 0L;
+        for (int[] direction : directions) {
+            int row = (square >>> 3) + direction[0];
+            int col = (square & 7) + direction[1];
+            while (onBoard(row, col)) {
+                long bit = 1L << (row * 8 + col);
+                result |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return result;
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+}
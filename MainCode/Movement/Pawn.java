@@ -1,4 +1,35 @@
 package Movement;
 
+// Precomputed pawn capture masks for each colour (square = row * 8 + col).
+// White pawns move towards row 0, black pawns towards row 7.
 public class Pawn {
+    private static final long[] WHITE_ATTACKS = new long[64];
+    private static final long[] BLACK_ATTACKS = new long[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = square >>> 3;
+            int col = square & 7;
+            WHITE_ATTACKS[square] = captureMask(row - 1, col);
+            BLACK_ATTACKS[square] = captureMask(row + 1, col);
+        }
+    }
+
+    private static long captureMask(int row, int col) {
+        long mask = 0L;
+        if (row < 0 || row > 7) {
+            return mask;
+        }
+        if (col > 0) {
+            mask |= 1L << (row * 8 + col - 1);
+        }
+        if (col < 7) {
+            mask |= 1L << (row * 8 + col + 1);
+        }
+        return mask;
+    }
+
+    public static long attacks(boolean isWhite, int square) {
+        return isWhite ? WHITE_ATTACKS[square] : BLACK_ATTACKS[square];
+    }
 }
@@ -1,4 +1,8 @@
 package Movement;
 
+// Queen attacks: the union of the rook and bishop tables (square = row * 8 + col)
 public class Queen {
+    public static long attacks(int square, long occupied) {
+        return Rook.attacks(square, occupied) | Bishop.attacks(square, occupied);
+    }
 }
@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Lazy SMP: several threads search the same root at the same time, each on its own copy of the
+// game, sharing one TranspositionTable. Helper threads vary their depths (see Search), so the
+// table fills with results the main thread can reuse; the main thread's result is reported.
+public class ParallelSearch {
+    private final TranspositionTable table;
+    private final int threads;
+    private final ExecutorService helperPool;
+
+    private volatile Search mainSearch;
+    private volatile Search.ProgressListener progressListener;
+    private volatile Tablebase tablebase;
+    private final List<Search> helpers = new ArrayList<>();
+    private boolean stopRequested; // Guarded by helpers, like the searches it is passed on to
+    private long nodes;
+
+    public ParallelSearch(TranspositionTable table, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one search thread");
+        }
+        this.table = table;
+        this.threads = threads;
+        this.helperPool = threads > 1 ? Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // Search the game's current position; same contract as Search.search, including a stop() that
+    // arrives before the threads have started (see clearStop).
+    // The calling thread runs the main search; the game is left unchanged afterwards.
+    public int search(ChessGame game, int maxDepth, long timeLimitMillis) {
+        Search main = new Search(game, table, 0);
+        main.setProgressListener(progressListener);
+        main.setTablebase(tablebase);
+        List<Future<?>> running = new ArrayList<>();
+        synchronized (helpers) {
+            helpers.clear();
+            for (int id = 1; id < threads; id++) {
+                Search helper = new Search(game.copy(), table, id);
+                helper.setTablebase(tablebase);
+                helpers.add(helper);
+            }
+            mainSearch = main;
+            if (stopRequested) {
+                main.stop();
+                for (Search helper : helpers) {
+                    helper.stop();
+                }
+            }
+        }
+
+        // Helpers run until the main search tells them to stop
+        for (Search helper : helpers) {
+            running.add(helperPool.submit(() -> helper.search(Search.MAX_DEPTH, 0)));
+        }
+
+        int move = main.search(maxDepth, timeLimitMillis);
+
+        long total = main.getNodes();
+        for (int i = 0; i < running.size(); i++) {
+            helpers.get(i).stop();
+        }
+        for (int i = 0; i < running.size(); i++) {
+            try {
+                running.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+            total += helpers.get(i).getNodes();
+        }
+        nodes = total;
+        return move;
+    }
+
+    // Listener for the main thread's completed iterations (used by the next search started)
+    public void setProgressListener(Search.ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // Endgame tablebases for every thread (used by the next search started; null for none)
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    // Stop the running search, or the next one if none has started yet (safe to call from another thread)
+    public void stop() {
+        synchronized (helpers) {
+            stopRequested = true;
+            Search main = mainSearch;
+            if (main != null) {
+                main.stop();
+            }
+            for (Search helper : helpers) {
+                helper.stop();
+            }
+        }
+    }
+
+    // Let the next search run after a stop. Call it before handing the search to another thread,
+    // as Search.clearStop, so a stop() sent in between is never lost.
+    public void clearStop() {
+        synchronized (helpers) {
+            stopRequested = false;
+        }
+    }
+
+    public int getBestScore() {
+        return mainSearch.getBestScore();
+    }
+
+    public int getCompletedDepth() {
+        return mainSearch.getCompletedDepth();
+    }
+
+    // Nodes searched by all threads in the last search
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // Release the helper threads
+    public void shutdown() {
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Perft ("performance test"): counts the leaf nodes of the move tree to a fixed depth.
+// Comparing the counts with published reference values proves the move rules are unchanged,
+// and the nodes per second give a repeatable throughput number for ChessGame.
+//
+// Usage:
+//   java -cp MainCode Perft                 verify the reference positions (and the Polyglot keys)
+//   java -cp MainCode Perft <depth> [fen]   print the per-move split (divide) and nodes/sec
+public class Perft {
+
+    // Reference positions: FEN followed by the expected node count for depth 1, 2, ...
+    // Counts are only listed to the depth the current rules (no castling, en passant
+    // or promotion yet) can reproduce. The last three exercise checks, pins and evasions.
+    private static final Object[][] REFERENCE_POSITIONS = {
+        {ChessGame.START_FEN, new long[] {20, 400, 8902, 197281}},
+        {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", new long[] {14, 191}},
+        {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", new long[] {6}},
+        {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", new long[] {46, 2079, 89890}},
+    };
+
+    // Polyglot keys published with the book format specification: moves from the start position,
+    // then the key. Later lines check castling rights lost to a king move and the en passant file;
+    // the specification's last example needs an en passant capture, which the rules don't have yet.
+    private static final Object[][] POLYGLOT_KEYS = {
+        {"", 0x463B96181691FC9CL},
+        {"e2e4", 0x823C9B50FD114196L},
+        {"e2e4 d7d5", 0x0756B94461C50FB0L},
+        {"e2e4 d7d5 e4e5", 0x662FAFB965DB29D4L},
+        {"e2e4 d7d5 e4e5 f7f5", 0x22A48B5A8E47FF78L},
+        {"e2e4 d7d5 e4e5 f7f5 e1e2", 0x652A607CA3F242C1L},
+        {"e2e4 d7d5 e4e5 f7f5 e1e2 e8f7", 0x00FDD303C946BDD9L},
+        {"a2a4 b7b5 h2h4 b5b4 c2c4", 0x3C8123EA7B067637L},
+    };
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            boolean passed = verifyReferencePositions();
+            System.out.println(passed ? "All perft counts match." : "Perft MISMATCH!");
+            passed &= verifyPolyglotKeys();
+            if (!passed) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        String fen = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length)) : ChessGame.START_FEN;
+
+        ChessGame game = ChessGame.fromFen(fen);
+        System.out.println("Divide to depth " + depth + ": " + fen);
+        long start = System.nanoTime();
+        long nodes = divide(game, depth);
+        report("single-threaded", nodes, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        nodes = parallelPerft(game, depth);
+        report("fork-join (" + ForkJoinPool.commonPool().getParallelism() + " threads)", nodes, System.nanoTime() - start);
+    }
+
+    private static boolean verifyReferencePositions() {
+        boolean passed = true;
+        for (Object[] reference : REFERENCE_POSITIONS) {
+            String fen = (String) reference[0];
+            long[] expected = (long[]) reference[1];
+            ChessGame game = ChessGame.fromFen(fen);
+
+            for (int depth = 1; depth <= expected.length; depth++) {
+                long start = System.nanoTime();
+                long single = perft(game, depth);
+                long singleTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long parallel = parallelPerft(game, depth);
+                long parallelTime = System.nanoTime() - start;
+
+                boolean ok = single == expected[depth - 1] && parallel == expected[depth - 1];
+                passed &= ok;
+                System.out.printf("%s depth %d: expected %d, got %d / %d (parallel)  %s  %s nps / %s nps%n",
+                        fen, depth, expected[depth - 1], single, parallel, ok ? "OK" : "FAIL",
+                        nodesPerSecond(single, singleTime), nodesPerSecond(parallel, parallelTime));
+            }
+        }
+        return passed;
+    }
+
+    private static boolean verifyPolyglotKeys() {
+        if (!PolyglotBook.isAvailable()) {
+            System.out.println("Polyglot keys FAIL: no valid random table, so the opening book is disabled (see the README)");
+            return false;
+        }
+        boolean passed = true;
+        int[] moves = new int[ChessGame.MAX_MOVES];
+        for (Object[] reference : POLYGLOT_KEYS) {
+            String line = (String) reference[0];
+            long expected = (Long) reference[1];
+            ChessGame game = ChessGame.fromFen(ChessGame.START_FEN);
+            for (String text : line.isEmpty() ? new String[0] : line.split(" ")) {
+                int moveCount = game.generateMoves(moves);
+                for (int i = 0; i < moveCount; i++) {
+                    if (Move.toString(moves[i]).equals(text)) {
+                        game.makeMove(moves[i]);
+                        break;
+                    }
+                }
+            }
+
+            long key = PolyglotBook.key(game);
+            boolean ok = key == expected;
+            passed &= ok;
+            System.out.printf("Polyglot key after \"%s\": expected %016x, got %016x  %s%n",
+                    line, expected, key, ok ? "OK" : "FAIL");
+        }
+        System.out.println(passed ? "All Polyglot keys match." : "Polyglot key MISMATCH!");
+        return passed;
+    }
+
+    // Count the leaf nodes below the given position
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, new int[depth + 1][ChessGame.MAX_MOVES]);
+    }
+
+    // moveBuffers holds one preallocated move list per remaining depth
+    private static long perft(ChessGame game, int depth, int[][] moveBuffers) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        int[] moves = moveBuffers[depth];
+        int moveCount = game.generateMoves(moves);
+        if (depth == 1) {
+            return moveCount;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moveCount; i++) {
+            game.makeMove(moves[i]);
+            nodes += perft(game, depth - 1, moveBuffers);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    // Perft that prints the node count below each root move
+    public static long divide(ChessGame game, int depth) {
+        int[][] moveBuffers = new int[depth + 1][ChessGame.MAX_MOVES];
+        int[] moves = moveBuffers[depth];
+        int moveCount = game.generateMoves(moves);
+
+        long nodes = 0;
+        for (int i = 0; i < moveCount; i++) {
+            game.makeMove(moves[i]);
+            long childNodes = perft(game, depth - 1, moveBuffers);
+            game.unmakeMove();
+            System.out.println(Move.toString(moves[i]) + ": " + childNodes);
+            nodes += childNodes;
+        }
+        return nodes;
+    }
+
+    // Perft with each root move searched as its own fork-join task
+    public static long parallelPerft(ChessGame game, int depth) {
+        if (depth <= 1) {
+            return perft(game, depth);
+        }
+
+        int[] moves = new int[ChessGame.MAX_MOVES];
+        int moveCount = game.generateMoves(moves);
+
+        List<RecursiveTask<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < moveCount; i++) {
+            ChessGame child = game.copy();
+            child.makeMove(moves[i]);
+            tasks.add(new RecursiveTask<Long>() {
+                @Override
+                protected Long compute() {
+                    return perft(child, depth - 1);
+                }
+            });
+        }
+
+        return ForkJoinPool.commonPool().submit(() -> {
+            long nodes = 0;
+            for (RecursiveTask<Long> task : RecursiveTask.invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }).join();
+    }
+
+    private static void report(String label, long nodes, long nanos) {
+        System.out.printf("Nodes: %d  Time: %.3f s  (%s nps, %s)%n",
+                nodes, nanos / 1e9, nodesPerSecond(nodes, nanos), label);
+    }
+
+    private static String nodesPerSecond(long nodes, long nanos) {
+        return String.format("%,d", nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos);
+    }
+}
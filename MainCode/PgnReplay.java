@@ -0,0 +1,456 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Replays every game of a PGN file through ChessGame to validate the moves and collect statistics.
+//
+// The file is memory-mapped a window at a time and split into games by scanning the bytes, so it
+// never has to fit in memory and no per-line Strings are made. Games are handed to worker threads
+// in batches (one contiguous byte range each) through a bounded queue, and every worker replays
+// its games on its own ChessGame, taking the moves back afterwards instead of allocating a new game.
+//
+// Usage:
+//   java -cp MainCode PgnReplay <file.pgn> [threads]
+public class PgnReplay {
+    private static final long WINDOW_BYTES = 64L << 20;
+    private static final int BATCH_BYTES = 1 << 20;
+    private static final int MAX_EXAMPLES = 10;
+
+    private static final int WHITE_WINS = 0;
+    private static final int BLACK_WINS = 1;
+    private static final int DRAW = 2;
+    private static final int UNFINISHED = 3;
+    private static final int NO_RESULT = 4;
+    private static final String[] RESULT_NAMES = {"1-0", "0-1", "1/2-1/2", "*", "missing"};
+
+    // Games from one stretch of the file: data[0, length) holds games starting at starts[0], starts[1], ...
+    private static final class Batch {
+        static final Batch END = new Batch(0, new byte[0], 0, new int[0], 0);
+
+        final long fileOffset;
+        final byte[] data;
+        final int length;
+        final int[] starts;
+        final int games;
+
+        Batch(long fileOffset, byte[] data, int length, int[] starts, int games) {
+            this.fileOffset = fileOffset;
+            this.data = data;
+            this.length = length;
+            this.starts = starts;
+            this.games = games;
+        }
+
+        int end(int game) {
+            return game + 1 < games ? starts[game + 1] : length;
+        }
+    }
+
+    // Totals from one worker, merged at the end
+    private static final class Stats {
+        long games;
+        long completeGames;
+        long illegalGames;
+        long unsupportedGames;
+        long plies;
+        final long[] results = new long[RESULT_NAMES.length];
+        final List<String> examples = new ArrayList<>();
+
+        void add(Stats other) {
+            games += other.games;
+            completeGames += other.completeGames;
+            illegalGames += other.illegalGames;
+            unsupportedGames += other.unsupportedGames;
+            plies += other.plies;
+            for (int i = 0; i < results.length; i++) {
+                results[i] += other.results[i];
+            }
+            for (String example : other.examples) {
+                if (examples.size() < MAX_EXAMPLES) {
+                    examples.add(example);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: java -cp MainCode PgnReplay <file.pgn> [threads]");
+            return;
+        }
+        Path path = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        Stats stats = replay(path, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Games: %,d in %.2f s  (%,.0f games/s, %,.0f plies/s, %d threads)%n",
+                stats.games, seconds, stats.games / seconds, stats.plies / seconds, threads);
+        System.out.printf("Replayed completely: %,d  Illegal move: %,d  Unsupported move (castling, en passant, promotion): %,d%n",
+                stats.completeGames, stats.illegalGames, stats.unsupportedGames);
+        StringBuilder results = new StringBuilder("Results:");
+        for (int i = 0; i < RESULT_NAMES.length; i++) {
+            results.append(String.format("  %s %,d", RESULT_NAMES[i], stats.results[i]));
+        }
+        System.out.println(results);
+        for (String example : stats.examples) {
+            System.out.println("  " + example);
+        }
+    }
+
+    // Replay every game in the file on the given number of worker threads
+    private static Stats replay(Path path, int threads) throws IOException, InterruptedException {
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(threads * 4);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        List<Future<Stats>> running = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            running.add(workers.submit(() -> replayBatches(queue)));
+        }
+
+        try {
+            split(path, queue);
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                queue.put(Batch.END);
+            }
+            workers.shutdown();
+        }
+
+        Stats total = new Stats();
+        for (Future<Stats> worker : running) {
+            try {
+                total.add(worker.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("PGN replay worker failed", e.getCause());
+            }
+        }
+        return total;
+    }
+
+    // Map the file a window at a time and queue its games in batches. A game cut off by the end of
+    // a window is left for the next window, which starts where that game starts.
+    private static void split(Path path, BlockingQueue<Batch> queue) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = hasByteOrderMark(channel) ? 3 : 0;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == size;
+
+                int consumed = splitWindow(window, length, lastWindow, position, queue);
+                if (consumed == 0) {
+                    throw new IOException("Game at byte " + position + " is larger than " + (WINDOW_BYTES >> 20) + " MB");
+                }
+                position += consumed;
+            }
+        }
+    }
+
+    private static boolean hasByteOrderMark(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(3);
+        channel.read(head, 0);
+        return head.position() == 3 && head.get(0) == (byte) 0xEF && head.get(1) == (byte) 0xBB && head.get(2) == (byte) 0xBF;
+    }
+
+    // Returns how many bytes of the window were queued (up to the start of the last, unfinished game)
+    private static int splitWindow(MappedByteBuffer window, int length, boolean lastWindow, long fileOffset,
+                                   BlockingQueue<Batch> queue) throws InterruptedException {
+        int batchStart = 0;
+        int[] starts = new int[256];
+        int games = 0;
+        int gameStart = 0;
+        boolean inMovetext = false;
+        boolean inComment = false;
+        boolean lineStart = true;
+
+        for (int i = 0; i < length; i++) {
+            byte c = window.get(i);
+            if (inComment) {
+                inComment = c != '}'; // A "[" inside a comment doesn't start a game
+            } else if (lineStart && c == '[') {
+                // A tag line after movetext starts the next game
+                if (inMovetext) {
+                    starts = append(starts, games++, gameStart - batchStart);
+                    gameStart = i;
+                    inMovetext = false;
+                    if (gameStart - batchStart >= BATCH_BYTES) {
+                        queue.put(copyBatch(window, fileOffset, batchStart, gameStart, starts, games));
+                        batchStart = gameStart;
+                        games = 0;
+                    }
+                }
+            } else {
+                if (lineStart && !isWhitespace(c)) {
+                    inMovetext = true;
+                }
+                inComment = inMovetext && c == '{';
+            }
+            lineStart = c == '\n' || (lineStart && (c == ' ' || c == '\t' || c == '\r'));
+        }
+
+        // The last game is only complete if the file ends here
+        int end = gameStart;
+        if (lastWindow) {
+            if (inMovetext) {
+                starts = append(starts, games++, gameStart - batchStart);
+            }
+            end = length;
+        }
+        if (games > 0) {
+            queue.put(copyBatch(window, fileOffset, batchStart, end, starts, games));
+        }
+        return end;
+    }
+
+    private static Batch copyBatch(MappedByteBuffer window, long fileOffset, int start, int end, int[] starts, int games) {
+        byte[] data = new byte[end - start];
+        window.get(start, data);
+        int[] gameStarts = new int[games];
+        System.arraycopy(starts, 0, gameStarts, 0, games);
+        return new Batch(fileOffset + start, data, data.length, gameStarts, games);
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            int[] bigger = new int[array.length * 2];
+            System.arraycopy(array, 0, bigger, 0, array.length);
+            array = bigger;
+        }
+        array[index] = value;
+        return array;
+    }
+
+    // Worker loop: replay batches until the END marker arrives
+    private static Stats replayBatches(BlockingQueue<Batch> queue) throws InterruptedException {
+        Stats stats = new Stats();
+        ChessGame startGame = ChessGame.fromFen(ChessGame.START_FEN);
+        int[] moves = new int[ChessGame.MAX_MOVES];
+        while (true) {
+            Batch batch = queue.take();
+            if (batch == Batch.END) {
+                return stats;
+            }
+            for (int game = 0; game < batch.games; game++) {
+                replayGame(batch, batch.starts[game], batch.end(game), startGame, moves, stats);
+            }
+        }
+    }
+
+    private static void replayGame(Batch batch, int start, int end, ChessGame startGame, int[] moves, Stats stats) {
+        byte[] data = batch.data;
+        stats.games++;
+
+        // Tag pairs: only Result and FEN matter here
+        int result = NO_RESULT;
+        String fen = null;
+        int i = start;
+        while (true) {
+            while (i < end && isWhitespace(data[i])) {
+                i++;
+            }
+            if (i >= end || data[i] != '[') {
+                break;
+            }
+            int lineEnd = i;
+            while (lineEnd < end && data[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int valueStart = indexOf(data, i, lineEnd, '"') + 1;
+            int valueEnd = valueStart > 0 ? indexOf(data, valueStart, lineEnd, '"') : -1;
+            if (valueEnd > 0) {
+                if (tagIs(data, i + 1, "Result ")) {
+                    result = classifyResult(data, valueStart, valueEnd);
+                } else if (tagIs(data, i + 1, "FEN ")) {
+                    fen = new String(data, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1);
+                }
+            }
+            i = lineEnd;
+        }
+        stats.results[result]++;
+
+        // Replay the movetext on the worker's game, or on a fresh one for a set-up position
+        ChessGame game = startGame;
+        if (fen != null) {
+            try {
+                game = ChessGame.fromFen(fen);
+            } catch (RuntimeException e) {
+                stats.illegalGames++;
+                addExample(stats, batch, start, "invalid FEN \"" + fen + "\"");
+                return;
+            }
+        }
+        int plies = replayMoves(game, data, i, end, moves, stats, batch, start);
+        stats.plies += plies;
+
+        // Take the moves back so the worker's game is at the start position again
+        if (game == startGame) {
+            for (int ply = 0; ply < plies; ply++) {
+                startGame.unmakeMove();
+            }
+        }
+    }
+
+    // Play the movetext in data[i, end), skipping move numbers, comments, variations and NAGs.
+    // Returns the number of moves played and records whether the game replayed completely.
+    private static int replayMoves(ChessGame game, byte[] data, int i, int end, int[] moves, Stats stats,
+                                   Batch batch, int gameStart) {
+        int plies = 0;
+        while (i < end) {
+            byte c = data[i];
+            if (isWhitespace(c) || c == ')') {
+                i++;
+                continue;
+            }
+            if (c == '{') {
+                i = skipPast(data, i, end, '}');
+                continue;
+            }
+            if (c == ';') {
+                i = skipPast(data, i, end, '\n');
+                continue;
+            }
+            if (c == '(') {
+                i = skipVariation(data, i, end);
+                continue;
+            }
+
+            int token = i;
+            int tokenEnd = i;
+            while (tokenEnd < end && !isDelimiter(data[tokenEnd])) {
+                tokenEnd++;
+            }
+            i = tokenEnd;
+            if (c == '$') {
+                continue; // Numeric annotation glyph
+            }
+            if (classifyResult(data, token, tokenEnd) != NO_RESULT) {
+                break;
+            }
+
+            // Skip a move number such as "12." or "12...", which may be glued to the move ("12.e4")
+            int digits = token;
+            while (digits < tokenEnd && data[digits] >= '0' && data[digits] <= '9') {
+                digits++;
+            }
+            if (digits > token && digits < tokenEnd && data[digits] == '.') {
+                token = digits;
+                while (token < tokenEnd && data[token] == '.') {
+                    token++;
+                }
+            }
+            if (token == tokenEnd) {
+                continue;
+            }
+
+            int move = San.parse(game, data, token, tokenEnd, moves);
+            if (move == San.UNSUPPORTED) {
+                stats.unsupportedGames++;
+                return plies;
+            }
+            if (move == Move.NONE) {
+                stats.illegalGames++;
+                addExample(stats, batch, gameStart, "illegal move " + new String(data, token, tokenEnd - token,
+                        StandardCharsets.ISO_8859_1) + " after " + plies + " plies");
+                return plies;
+            }
+            game.makeMove(move);
+            plies++;
+        }
+        stats.completeGames++;
+        return plies;
+    }
+
+    // Skip a (possibly nested) variation starting at data[i] == '('
+    private static int skipVariation(byte[] data, int i, int end) {
+        int depth = 0;
+        while (i < end) {
+            byte c = data[i];
+            if (c == '{') {
+                i = skipPast(data, i, end, '}');
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return end;
+    }
+
+    private static int skipPast(byte[] data, int i, int end, char c) {
+        int index = indexOf(data, i, end, c);
+        return index < 0 ? end : index + 1;
+    }
+
+    private static void addExample(Stats stats, Batch batch, int gameStart, String message) {
+        if (stats.examples.size() < MAX_EXAMPLES) {
+            stats.examples.add("Game at byte " + (batch.fileOffset + gameStart) + ": " + message);
+        }
+    }
+
+    private static int classifyResult(byte[] data, int start, int end) {
+        if (equals(data, start, end, "1-0")) {
+            return WHITE_WINS;
+        }
+        if (equals(data, start, end, "0-1")) {
+            return BLACK_WINS;
+        }
+        if (equals(data, start, end, "1/2-1/2")) {
+            return DRAW;
+        }
+        if (equals(data, start, end, "*")) {
+            return UNFINISHED;
+        }
+        return NO_RESULT;
+    }
+
+    private static boolean tagIs(byte[] data, int start, String name) {
+        return start + name.length() <= data.length && equals(data, start, start + name.length(), name);
+    }
+
+    private static boolean equals(byte[] data, int start, int end, String text) {
+        if (end - start != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (data[start + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int start, int end, char c) {
+        for (int i = start; i < end; i++) {
+            if (data[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDelimiter(int c) {
+        return isWhitespace(c) || c == '{' || c == '(' || c == ')' || c == ';';
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
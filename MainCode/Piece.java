@@ -0,0 +1,61 @@
+// The twelve chess pieces. A piece's code (its ordinal) is color * 6 + type, using the
+// Position color and type constants, so it fits in a byte and indexes bitboard and hash arrays.
+// Names like "W-Pawn" are only produced for display and logging.
+public enum Piece {
+    WHITE_PAWN, WHITE_KNIGHT, WHITE_BISHOP, WHITE_ROOK, WHITE_QUEEN, WHITE_KING,
+    BLACK_PAWN, BLACK_KNIGHT, BLACK_BISHOP, BLACK_ROOK, BLACK_QUEEN, BLACK_KING;
+
+    // Code stored in an empty square of Position's byte board
+    public static final byte NONE = -1;
+
+    private static final Piece[] BY_CODE = values();
+    private static final String[] TYPE_NAMES = {"Pawn", "Knight", "Bishop", "Rook", "Queen", "King"};
+
+    public static Piece of(int color, int type) {
+        return BY_CODE[color * 6 + type];
+    }
+
+    // Piece for a code, or null for NONE
+    public static Piece fromCode(int code) {
+        return code < 0 ? null : BY_CODE[code];
+    }
+
+    // Parse the "W-Pawn" / "B-King" names used by the old String[][] board
+    public static Piece fromName(String name) {
+        int color = name.startsWith("W") ? Position.WHITE : Position.BLACK;
+        String typeName = name.substring(2);
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            if (TYPE_NAMES[type].equals(typeName)) {
+                return of(color, type);
+            }
+        }
+        throw new IllegalArgumentException("Unknown piece: " + name);
+    }
+
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    public int color() {
+        return ordinal() / 6;
+    }
+
+    public int type() {
+        return ordinal() % 6;
+    }
+
+    public boolean isWhite() {
+        return ordinal() < 6;
+    }
+
+    // Type name without the color, e.g. "Knight"
+    public String typeName() {
+        return TYPE_NAMES[type()];
+    }
+
+    // "W-Pawn", "B-King", ...
+    @Override
+    public String toString() {
+        return (isWhite() ? "W-" : "B-") + typeName();
+    }
+}
@@ -0,0 +1,51 @@
+// Square-indexed piece lists for both colors.
+// Each color keeps a packed list of the squares its pieces stand on, plus a reverse index from
+// square to list slot, so adding, moving and removing a piece are all constant time
+// (removal swaps the last entry into the freed slot instead of shifting the list).
+public class PieceRegistry {
+    private final int[][] squares = new int[2][64];
+    private final int[] counts = new int[2];
+    private final int[] slotOf = new int[64];
+
+    public PieceRegistry() {
+    }
+
+    public PieceRegistry(PieceRegistry other) {
+        copyFrom(other);
+    }
+
+    public void copyFrom(PieceRegistry other) {
+        System.arraycopy(other.squares[0], 0, squares[0], 0, 64);
+        System.arraycopy(other.squares[1], 0, squares[1], 0, 64);
+        System.arraycopy(other.counts, 0, counts, 0, 2);
+        System.arraycopy(other.slotOf, 0, slotOf, 0, 64);
+    }
+
+    public void add(int color, int square) {
+        int slot = counts[color]++;
+        squares[color][slot] = square;
+        slotOf[square] = slot;
+    }
+
+    public void remove(int color, int square) {
+        int slot = slotOf[square];
+        int last = squares[color][--counts[color]];
+        squares[color][slot] = last;
+        slotOf[last] = slot;
+    }
+
+    public void move(int color, int from, int to) {
+        int slot = slotOf[from];
+        squares[color][slot] = to;
+        slotOf[to] = slot;
+    }
+
+    public int count(int color) {
+        return counts[color];
+    }
+
+    // Square of the index-th piece of a color (0 <= index < count(color))
+    public int square(int color, int index) {
+        return squares[color][index];
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Opening book in the Polyglot .bin format: 16-byte big-endian entries (key, move, weight, learn)
+// sorted by the Polyglot hash of the position. The file is memory-mapped and probed with a binary
+// search, so even a book of several hundred megabytes costs no heap and no load time.
+//
+// Polyglot hashes use a fixed table of 781 random numbers from the format specification. It is read
+// from resources/polyglot_random64.txt on the classpath (the Random64 array as printed in the
+// specification; every 0x... literal is picked up) and checked against the published key of the
+// starting position. Without a valid table every probe misses, so callers fall back to searching.
+public class PolyglotBook implements AutoCloseable {
+    // Book used by the board and the engine when present (relative to the working directory)
+    public static final String DEFAULT_PATH = "resources/book.bin";
+
+    private static final String RANDOM_RESOURCE = "/resources/polyglot_random64.txt";
+    private static final long START_KEY = 0x463B96181691FC9CL;
+    private static final int RANDOM_COUNT = 781;
+    private static final int CASTLING_OFFSET = 768;
+    private static final int EN_PASSANT_OFFSET = 772;
+    private static final int TURN_OFFSET = 780;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int CHUNK_SHIFT = 26; // 2^26 entries (1 GB) per mapping
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long entries;
+    private final int[] moves = new int[ChessGame.MAX_MOVES]; // Legal moves of the position probed
+
+    public PolyglotBook(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        entries = channel.size() / ENTRY_BYTES;
+        long chunkEntries = 1L << CHUNK_SHIFT;
+        chunks = new MappedByteBuffer[(int) ((entries + chunkEntries - 1) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            long first = (long) i << CHUNK_SHIFT;
+            long size = Math.min(chunkEntries, entries - first) * ENTRY_BYTES;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, first * ENTRY_BYTES, size);
+            chunks[i].order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    // The book at DEFAULT_PATH, or null if there is none (or no valid Polyglot random table)
+    public static PolyglotBook openDefault() {
+        Path path = Paths.get(DEFAULT_PATH);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        if (!isAvailable()) {
+            System.err.println("Opening book disabled: " + RANDOM_RESOURCE + " is missing or invalid");
+            return null;
+        }
+        try {
+            return new PolyglotBook(path);
+        } catch (IOException e) {
+            System.err.println("Could not open opening book " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Whether Polyglot keys can be computed (the random table was found and passed its check)
+    public static boolean isAvailable() {
+        return RandomTable.VALUES != null;
+    }
+
+    // The book move with the highest weight, or Move.NONE if the position isn't in the book
+    public int bestMove(ChessGame game) {
+        return pickMove(game, game.getLastMove(), null);
+    }
+
+    // bestMove for a copy of a game, which has no move history: lastMove is the game's last move,
+    // which decides whether an en passant file is part of the key
+    public int bestMove(ChessGame game, int lastMove) {
+        return pickMove(game, lastMove, null);
+    }
+
+    // A book move chosen with probability proportional to its weight, or Move.NONE
+    public int randomMove(ChessGame game, Random random) {
+        return pickMove(game, game.getLastMove(), random);
+    }
+
+    public long size() {
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Synchronized as probes share the move buffer
+    private synchronized int pickMove(ChessGame game, int lastMove, Random random) {
+        if (!isAvailable() || entries == 0) {
+            return Move.NONE;
+        }
+        long key = key(game, lastMove, RandomTable.VALUES);
+
+        // Find the first entry with the key (entries are sorted as unsigned numbers)
+        long low = 0;
+        long high = entries;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(entryKey(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        // Only moves ChessGame can play are candidates (castling, for one, isn't yet)
+        int moveCount = game.generateMoves(moves);
+        int best = Move.NONE;
+        int bestWeight = -1;
+        long totalWeight = 0;
+        for (long index = low; index < entries && entryKey(index) == key; index++) {
+            int move = findMove(entryMove(index), moves, moveCount);
+            int weight = entryWeight(index);
+            if (move == Move.NONE) {
+                continue;
+            }
+            if (random == null) {
+                if (weight > bestWeight) {
+                    best = move;
+                    bestWeight = weight;
+                }
+            } else {
+                // Weighted reservoir sampling: keep each move with probability weight / total so far
+                totalWeight += weight;
+                if (best == Move.NONE || (weight > 0 && Math.floorMod(random.nextLong(), totalWeight) < weight)) {
+                    best = move;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Polyglot moves: bits 0-2 to file, 3-5 to rank, 6-8 from file, 9-11 from rank, 12-14 promotion
+    private static int findMove(int bookMove, int[] moves, int moveCount) {
+        if ((bookMove >>> 12) != 0) {
+            return Move.NONE; // Promotion
+        }
+        int to = Bitboards.square(7 - ((bookMove >>> 3) & 7), bookMove & 7);
+        int from = Bitboards.square(7 - ((bookMove >>> 9) & 7), (bookMove >>> 6) & 7);
+        for (int i = 0; i < moveCount; i++) {
+            if (Move.from(moves[i]) == from && Move.to(moves[i]) == to) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    private long entryKey(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getLong(offset(index));
+    }
+
+    private int entryMove(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getShort(offset(index) + 8) & 0xFFFF;
+    }
+
+    private int entryWeight(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getShort(offset(index) + 10) & 0xFFFF;
+    }
+
+    private static int offset(long index) {
+        return (int) (index & ((1L << CHUNK_SHIFT) - 1)) * ENTRY_BYTES;
+    }
+
+    // Polyglot hash of the game's current position
+    public static long key(ChessGame game) {
+        return key(game, game.getLastMove(), RandomTable.VALUES);
+    }
+
+    private static long key(ChessGame game, int lastMove, long[] random) {
+        Position position = game.getPosition();
+        long key = 0;
+        for (int square = 0; square < 64; square++) {
+            int code = position.pieceAt(square);
+            if (code >= 0) {
+                // Polyglot orders pieces black pawn, white pawn, black knight, ... and ranks from rank 1
+                int kind = 2 * (code % 6) + (code / 6 == Position.WHITE ? 1 : 0);
+                key ^= random[64 * kind + 8 * (7 - Bitboards.row(square)) + Bitboards.col(square)];
+            }
+        }
+
+        // ChessGame doesn't track castling rights yet, so a right is assumed while the king and
+        // rook are still on their starting squares
+        if (isOn(position, Position.WHITE, Position.KING, "e1")) {
+            key ^= isOn(position, Position.WHITE, Position.ROOK, "h1") ? random[CASTLING_OFFSET] : 0;
+            key ^= isOn(position, Position.WHITE, Position.ROOK, "a1") ? random[CASTLING_OFFSET + 1] : 0;
+        }
+        if (isOn(position, Position.BLACK, Position.KING, "e8")) {
+            key ^= isOn(position, Position.BLACK, Position.ROOK, "h8") ? random[CASTLING_OFFSET + 2] : 0;
+            key ^= isOn(position, Position.BLACK, Position.ROOK, "a8") ? random[CASTLING_OFFSET + 3] : 0;
+        }
+
+        // The en passant file counts only if a pawn of the side to move stands next to the pawn that just moved two squares
+        if (lastMove != Move.NONE && Move.flags(lastMove) == Move.DOUBLE_PAWN_PUSH) {
+            int to = Move.to(lastMove);
+            int us = game.isWhiteTurn() ? Position.WHITE : Position.BLACK;
+            long neighbours = ((Bitboards.bit(to) & ~Bitboards.FILE_A) >>> 1) | ((Bitboards.bit(to) & ~Bitboards.FILE_H) << 1);
+            if ((neighbours & position.pieces(us, Position.PAWN)) != 0) {
+                key ^= random[EN_PASSANT_OFFSET + Bitboards.col(to)];
+            }
+        }
+
+        if (game.isWhiteTurn()) {
+            key ^= random[TURN_OFFSET];
+        }
+        return key;
+    }
+
+    private static boolean isOn(Position position, int color, int type, String square) {
+        int index = Bitboards.square('8' - square.charAt(1), square.charAt(0) - 'a');
+        return (position.pieces(color, type) & Bitboards.bit(index)) != 0;
+    }
+
+    // Loaded on first use; VALUES is null when the table is missing or wrong
+    private static final class RandomTable {
+        static final long[] VALUES = load();
+
+        private static long[] load() {
+            try (InputStream in = PolyglotBook.class.getResourceAsStream(RANDOM_RESOURCE)) {
+                if (in == null) {
+                    return null;
+                }
+                String text = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+                long[] values = new long[RANDOM_COUNT];
+                Matcher matcher = Pattern.compile("0x([0-9A-Fa-f]{16})").matcher(text);
+                int count = 0;
+                while (count < RANDOM_COUNT && matcher.find()) {
+                    values[count++] = Long.parseUnsignedLong(matcher.group(1), 16);
+                }
+                boolean valid = count == RANDOM_COUNT
+                        && key(ChessGame.fromFen(ChessGame.START_FEN), Move.NONE, values) == START_KEY;
+                return valid ? values : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
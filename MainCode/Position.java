@@ -0,0 +1,137 @@
+import java.util.Arrays;
+
+// Bitboard representation of a chess position.
+// One 64-bit mask per piece type and color, plus occupancy masks for each color and the whole board,
+// and a byte per square holding the piece code for constant-time "what is on this square" lookups.
+// Square index = row * 8 + col (see Bitboards).
+public class Position {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    // pieces[color * 6 + type]
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private long occupied;
+
+    // Piece code (see Piece) on each square, or Piece.NONE
+    private final byte[] board = new byte[64];
+
+    // Piece lists indexed by square, kept in step with the bitboards
+    private final PieceRegistry registry;
+
+    public Position() {
+        Arrays.fill(board, Piece.NONE);
+        registry = new PieceRegistry();
+    }
+
+    public Position(Position other) {
+        registry = new PieceRegistry();
+        copyFrom(other);
+    }
+
+    // Overwrite this position with a copy of another one
+    public void copyFrom(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        occupied = other.occupied;
+        System.arraycopy(other.board, 0, board, 0, board.length);
+        registry.copyFrom(other.registry);
+    }
+
+    // Build a position from the old String[][] view ("W-Pawn", "B-King", ... or null)
+    public static Position fromArray(String[][] board) {
+        Position position = new Position();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                if (board[row][col] != null) {
+                    Piece piece = Piece.fromName(board[row][col]);
+                    position.addPiece(piece.color(), piece.type(), Bitboards.square(row, col));
+                }
+            }
+        }
+        return position;
+    }
+
+    // Produce the old String[][] view of this position
+    public String[][] toArray() {
+        String[][] names = new String[8][8];
+        for (int square = 0; square < 64; square++) {
+            Piece piece = getPiece(square);
+            names[Bitboards.row(square)][Bitboards.col(square)] = piece == null ? null : piece.toString();
+        }
+        return names;
+    }
+
+    // Piece on a square, or null if empty
+    public Piece getPiece(int square) {
+        return Piece.fromCode(board[square]);
+    }
+
+    // Piece code on a square (color * 6 + type), or Piece.NONE if empty
+    public int pieceAt(int square) {
+        return board[square];
+    }
+
+    // Color of the piece on a square, or -1 if empty
+    public int colorAt(int square) {
+        int code = board[square];
+        return code < 0 ? -1 : code / 6;
+    }
+
+    // Type of the piece on a square, or -1 if empty
+    public int typeAt(int square) {
+        int code = board[square];
+        return code < 0 ? -1 : code % 6;
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[color * 6 + type];
+    }
+
+    public long colorPieces(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public PieceRegistry registry() {
+        return registry;
+    }
+
+    public void addPiece(int color, int type, int square) {
+        long bit = Bitboards.bit(square);
+        pieces[color * 6 + type] |= bit;
+        colors[color] |= bit;
+        occupied |= bit;
+        board[square] = (byte) (color * 6 + type);
+        registry.add(color, square);
+    }
+
+    public void removePiece(int color, int type, int square) {
+        long bit = ~Bitboards.bit(square);
+        pieces[color * 6 + type] &= bit;
+        colors[color] &= bit;
+        occupied &= bit;
+        board[square] = Piece.NONE;
+        registry.remove(color, square);
+    }
+
+    public void movePiece(int color, int type, int from, int to) {
+        long fromTo = Bitboards.bit(from) | Bitboards.bit(to);
+        pieces[color * 6 + type] ^= fromTo;
+        colors[color] ^= fromTo;
+        occupied ^= fromTo;
+        board[to] = board[from];
+        board[from] = Piece.NONE;
+        registry.move(color, from, to);
+    }
+}
@@ -0,0 +1,108 @@
+// Standard Algebraic Notation (SAN), the move format used in PGN files: "e4", "Nbd7", "exd5", "R1e2+".
+// Moves are matched against ChessGame's legal moves, so ambiguous or impossible moves are rejected.
+public final class San {
+    // Returned for castling, en passant and promotion, which ChessGame doesn't play yet
+    public static final int UNSUPPORTED = -1;
+
+    private San() {
+    }
+
+    // Find the legal move written in text[start, end). Returns the move, Move.NONE if no single legal
+    // move matches, or UNSUPPORTED. moves is a scratch buffer of at least ChessGame.MAX_MOVES entries.
+    public static int parse(ChessGame game, byte[] text, int start, int end, int[] moves) {
+        // Drop check, mate and annotation suffixes ("+", "#", "!?", ...)
+        while (end > start && isSuffix(text[end - 1])) {
+            end--;
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        if (text[start] == 'O' || text[start] == '0') {
+            return UNSUPPORTED; // O-O or O-O-O
+        }
+
+        int type = Position.PAWN;
+        int i = start;
+        int pieceLetter = pieceType(text[i]);
+        if (pieceLetter >= 0) {
+            type = pieceLetter;
+            i++;
+        }
+
+        // Promotions are written "e8=Q" (or "e8Q" by some programs)
+        if (type == Position.PAWN && (text[end - 2] == '=' || pieceType(text[end - 1]) >= 0)) {
+            return UNSUPPORTED;
+        }
+
+        // The destination square is always the last two characters
+        if (end - i < 2) {
+            return Move.NONE;
+        }
+        int file = text[end - 2] - 'a';
+        int rank = text[end - 1] - '1';
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            return Move.NONE;
+        }
+        int to = Bitboards.square(7 - rank, file);
+
+        // Anything between the piece letter and the destination narrows down the start square
+        int fromCol = -1;
+        int fromRow = -1;
+        for (int j = i; j < end - 2; j++) {
+            int c = text[j];
+            if (c >= 'a' && c <= 'h') {
+                fromCol = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = 7 - (c - '1');
+            } else if (c != 'x') {
+                return Move.NONE;
+            }
+        }
+
+        Position position = game.getPosition();
+        int match = Move.NONE;
+        int matches = 0;
+        int moveCount = game.generateMoves(moves);
+        for (int j = 0; j < moveCount; j++) {
+            int move = moves[j];
+            int from = Move.from(move);
+            if (Move.to(move) == to && position.typeAt(from) == type
+                    && (fromCol < 0 || Bitboards.col(from) == fromCol)
+                    && (fromRow < 0 || Bitboards.row(from) == fromRow)) {
+                match = move;
+                matches++;
+            }
+        }
+        if (matches == 1) {
+            return match;
+        }
+
+        // A pawn capturing onto an empty square can only be en passant
+        if (matches == 0 && type == Position.PAWN && fromCol >= 0 && fromCol != file && position.pieceAt(to) == Piece.NONE) {
+            return UNSUPPORTED;
+        }
+        return Move.NONE;
+    }
+
+    // Position type for a SAN piece letter, or -1
+    private static int pieceType(int letter) {
+        switch (letter) {
+            case 'N':
+                return Position.KNIGHT;
+            case 'B':
+                return Position.BISHOP;
+            case 'R':
+                return Position.ROOK;
+            case 'Q':
+                return Position.QUEEN;
+            case 'K':
+                return Position.KING;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean isSuffix(int c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+}
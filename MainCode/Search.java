@@ -0,0 +1,417 @@
+// Alpha-beta search over ChessGame used to suggest moves.
+// Iterative deepening drives a principal variation search (PVS): the first move at each node gets
+// the full window and the rest are tried with a null window, re-searched only if they beat it.
+// From depth 4 each iteration starts with a narrow aspiration window around the previous score.
+// The move generator only produces legal moves, so a node without moves is checkmate or stalemate.
+// Moves are ordered by MovePicker, with killer moves and history kept per thread in MoveHistory.
+public class Search {
+    public static final int INFINITY = 32000;
+    public static final int MATE = 30000;
+    public static final int MAX_DEPTH = 64;
+
+    private static final int MAX_PLY = 128;
+
+    // Scores this close to MATE are mates: found by the search (within MAX_PLY) or read from a
+    // tablebase, whose distances go up to 255 plies beyond the node probed
+    private static final int MATE_RANGE = 512;
+    private static final int ASPIRATION_WINDOW = 25;
+
+    // Nodes between updates of EngineMetrics (a power of two)
+    private static final int METRICS_INTERVAL = 1 << 16;
+
+    // Lazy SMP helper threads skip some iterations so they spread over different depths
+    // (thread i skips depth d when ((d + SKIP_PHASE[i]) / SKIP_SIZE[i]) is odd)
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    // Receives the result of every completed iteration, on the searching thread
+    public interface ProgressListener {
+        void iterationCompleted(int depth, int score, int bestMove, long nodes);
+    }
+
+    private final ChessGame game;
+    private final TranspositionTable table;
+    private final int threadId;
+    private ProgressListener progressListener;
+    private Tablebase tablebase;
+
+    // One move picker and one principal variation row per ply, allocated once
+    private final MoveHistory moveHistory = new MoveHistory(MAX_PLY);
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    private long nodes;
+    private long deadline;
+    private volatile boolean stopped;
+
+    // Transposition table statistics, and what has already been added to EngineMetrics
+    private long tableProbes;
+    private long tableHits;
+    private long publishedNodes;
+    private long publishedProbes;
+    private long publishedHits;
+
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+
+    public Search(ChessGame game, TranspositionTable table) {
+        this(game, table, 0);
+    }
+
+    // threadId 0 is the main search; helpers (1, 2, ...) share the table and vary their depths
+    public Search(ChessGame game, TranspositionTable table, int threadId) {
+        this.game = game;
+        this.table = table;
+        this.threadId = threadId;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(game, moveHistory, ply);
+        }
+    }
+
+    // Search until maxDepth is finished or timeLimitMillis has passed (0 = no limit), or until stop().
+    // Returns the best move found, or Move.NONE if the side to move has no moves.
+    // A stop() that arrives before this is called still counts: the search returns at once.
+    // To search again with a Search that has stopped, call clearStop() first.
+    public int search(int maxDepth, long timeLimitMillis) {
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        publishedNodes = 0;
+        publishedProbes = 0;
+        publishedHits = 0;
+        bestMove = Move.NONE;
+        bestScore = 0;
+        completedDepth = 0;
+        deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1_000_000L : Long.MAX_VALUE;
+        if (threadId == 0) {
+            table.newSearch();
+        }
+        moveHistory.newSearch();
+
+        int score = 0;
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            if (threadId > 0 && depth > 1) {
+                int i = (threadId - 1) % SKIP_SIZE.length;
+                if (((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0) {
+                    continue;
+                }
+            }
+            FlightEvents.SearchIteration event = new FlightEvents.SearchIteration();
+            event.begin();
+            long nodesBefore = nodes;
+            score = aspirationSearch(depth, score);
+            event.end();
+            if (event.shouldCommit()) {
+                event.searchThread = threadId;
+                event.depth = depth;
+                event.nodes = nodes - nodesBefore;
+                event.score = score;
+                event.bestMove = pvTable[0][0] == Move.NONE ? null : Move.toString(pvTable[0][0]);
+                event.completed = !stopped;
+                event.commit();
+            }
+            publishMetrics();
+            if (stopped) {
+                break;
+            }
+
+            // Only results from completed iterations are trusted
+            bestMove = pvTable[0][0];
+            bestScore = score;
+            completedDepth = depth;
+            if (progressListener != null) {
+                progressListener.iterationCompleted(depth, score, bestMove, nodes);
+            }
+
+            // No point searching deeper once a forced mate has been found
+            if (Math.abs(score) >= MATE - depth) {
+                break;
+            }
+        }
+
+        // Out of time before the first iteration finished: fall back to any move
+        if (bestMove == Move.NONE) {
+            pickers[0].init(Move.NONE);
+            bestMove = pickers[0].next();
+        }
+        return bestMove;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // Endgame tablebases probed below the root (null for none)
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    // Ask a running search to finish as soon as possible, or the next one not to start
+    // (safe to call from another thread)
+    public void stop() {
+        stopped = true;
+    }
+
+    // Let the next search run after a stop (or after running out of time). Call it on the thread that
+    // starts the search, before handing the search to another thread, so a stop() sent in between
+    // is never lost.
+    public void clearStop() {
+        stopped = false;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // Score of the best move in centipawns from the side to move's point of view
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Number of moves until mate for a mate score (negative if the side to move is getting mated), else 0
+    public static int mateIn(int score) {
+        if (score >= MATE - MATE_RANGE) {
+            return (MATE - score + 1) / 2;
+        }
+        if (score <= -MATE + MATE_RANGE) {
+            return -(MATE + score) / 2;
+        }
+        return 0;
+    }
+
+    // Add the work done since the last call to EngineMetrics; doing it in batches keeps it off the hot path
+    private void publishMetrics() {
+        EngineMetrics.SEARCH_NODES.add(nodes - publishedNodes);
+        EngineMetrics.TABLE_PROBES.add(tableProbes - publishedProbes);
+        EngineMetrics.TABLE_HITS.add(tableHits - publishedHits);
+        publishedNodes = nodes;
+        publishedProbes = tableProbes;
+        publishedHits = tableHits;
+        game.flushMetrics();
+    }
+
+    private int aspirationSearch(int depth, int previousScore) {
+        if (depth < 4) {
+            return pvs(depth, -INFINITY, INFINITY, 0);
+        }
+
+        // Start with a narrow window and widen whichever side the score falls outside of
+        int delta = ASPIRATION_WINDOW;
+        int alpha = Math.max(previousScore - delta, -INFINITY);
+        int beta = Math.min(previousScore + delta, INFINITY);
+        while (true) {
+            int score = pvs(depth, alpha, beta, 0);
+            if (stopped) {
+                return score;
+            }
+            if (score <= alpha) {
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if (score >= beta) {
+                beta = Math.min(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+            delta *= 2;
+        }
+    }
+
+    private int pvs(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+
+        // A position the tablebases cover needs no search; their distances count from this node
+        if (tablebase != null && ply > 0) {
+            int score = tablebase.probe(game);
+            if (score != Tablebase.NOT_FOUND) {
+                return score > 0 ? score - ply : score < 0 ? score + ply : 0;
+            }
+        }
+
+        if (depth <= 0) {
+            return quiescence(alpha, beta, ply);
+        }
+        if (ply >= MAX_PLY - 1) {
+            return game.evaluate();
+        }
+
+        nodes++;
+        checkTime();
+        if (stopped) {
+            return 0;
+        }
+
+        // Use the transposition table for a cutoff outside the principal variation, and for ordering
+        boolean pvNode = beta - alpha > 1;
+        long key = game.getHash();
+        long entry = table.probe(key);
+        tableProbes++;
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            tableHits++;
+            hashMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        // Moves come hash move first, then captures, killers and quiet moves (see MovePicker)
+        MovePicker picker = pickers[ply];
+        picker.init(hashMove);
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMoveHere = Move.NONE;
+        int moveCount = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            game.makeMove(move);
+            moveCount++;
+
+            int score;
+            if (moveCount == 1) {
+                score = -pvs(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                // Prove the move is no better than the current best with a null window
+                score = -pvs(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta) {
+                    score = -pvs(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMoveHere = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                }
+                if (score >= beta) {
+                    // Remember quiet refutations for ordering sibling and later positions
+                    if (!Move.isCapture(move)) {
+                        moveHistory.recordCutoff(game.isWhiteTurn() ? Position.WHITE : Position.BLACK, move, ply, depth);
+                    }
+                    break;
+                }
+            }
+        }
+        if (moveCount == 0) {
+            return game.inCheck() ? -MATE + ply : 0;
+        }
+
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMoveHere, scoreToTable(best, ply), depth, bound);
+        return best;
+    }
+
+    // Search captures only until the position is quiet, so the evaluation isn't taken mid-exchange
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+
+        nodes++;
+        checkTime();
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return game.evaluate();
+        }
+
+        // In check there is no standing pat: every evasion is searched, and having none is mate
+        MovePicker picker = pickers[ply];
+        boolean inCheck = game.inCheck();
+        if (inCheck) {
+            picker.init(Move.NONE);
+        } else {
+            int standPat = game.evaluate();
+            if (standPat >= beta) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+            picker.initCaptures();
+        }
+        int moveCount = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            game.makeMove(move);
+            moveCount++;
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score >= beta) {
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        if (inCheck && moveCount == 0) {
+            return -MATE + ply;
+        }
+        return alpha;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        for (int i = ply + 1; i < pvLength[ply + 1]; i++) {
+            pvTable[ply][i] = pvTable[ply + 1][i];
+        }
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    private void checkTime() {
+        if ((nodes & 1023) == 0) {
+            if (System.nanoTime() >= deadline) {
+                stopped = true;
+            }
+            if ((nodes & (METRICS_INTERVAL - 1)) == 0) {
+                publishMetrics(); // So long iterations still show up in the rates
+            }
+        }
+    }
+
+    // Mate scores are stored relative to the node so they stay correct when reached at another ply
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE - MATE_RANGE) {
+            return score + ply;
+        }
+        if (score <= -MATE + MATE_RANGE) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE - MATE_RANGE) {
+            return score - ply;
+        }
+        if (score <= -MATE + MATE_RANGE) {
+            return score + ply;
+        }
+        return score;
+    }
+}
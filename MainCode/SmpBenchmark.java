@@ -0,0 +1,66 @@
+// Measures how Lazy SMP search throughput scales with the number of threads.
+// For 1, 2, 4, ... threads (up to the core count) it searches a set of positions for a fixed
+// time and prints nodes per second and the speed-up over one thread.
+//
+// Usage: java -cp MainCode SmpBenchmark [seconds per position] [max threads] [table MB]
+public class SmpBenchmark {
+    private static final String[] POSITIONS = {
+        ChessGame.START_FEN,
+        "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p2/6k1/4P3/8 w - - 0 1",
+    };
+
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 5;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int tableMegabytes = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        long timeLimitMillis = (long) (seconds * 1000);
+
+        System.out.printf("Lazy SMP scaling: %d positions, %.1f s each, %d MB table, up to %d threads%n",
+                POSITIONS.length, seconds, tableMegabytes, maxThreads);
+        System.out.println("threads      nodes/sec   speed-up   avg depth");
+
+        // Warm up the JIT so the one-thread baseline isn't measured on cold code
+        ParallelSearch warmUp = new ParallelSearch(new TranspositionTable(16), 1);
+        for (String fen : POSITIONS) {
+            warmUp.search(ChessGame.fromFen(fen), Search.MAX_DEPTH, Math.min(timeLimitMillis, 1000));
+        }
+        warmUp.shutdown();
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            TranspositionTable table = new TranspositionTable(tableMegabytes);
+            ParallelSearch search = new ParallelSearch(table, threads);
+
+            long nodes = 0;
+            long nanos = 0;
+            int depthTotal = 0;
+            for (String fen : POSITIONS) {
+                table.clear();
+                ChessGame game = ChessGame.fromFen(fen);
+                long start = System.nanoTime();
+                search.search(game, Search.MAX_DEPTH, timeLimitMillis);
+                nanos += System.nanoTime() - start;
+                nodes += search.getNodes();
+                depthTotal += search.getCompletedDepth();
+            }
+            search.shutdown();
+
+            double nodesPerSecond = nodes * 1e9 / nanos;
+            if (threads == 1) {
+                baseline = nodesPerSecond;
+            }
+            System.out.printf("%7d  %,13.0f   %7.2fx   %9.1f%n",
+                    threads, nodesPerSecond, nodesPerSecond / baseline, (double) depthTotal / POSITIONS.length);
+        }
+    }
+
+    // 1, 2, 4, 8, ... and finally the maximum itself
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+}
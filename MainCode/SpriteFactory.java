@@ -0,0 +1,63 @@
+import java.awt.*;
+import java.awt.image.BaseMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Piece sprites rendered in memory from the vector shapes of ChessPieceImageGenerator, at whatever
+// size is asked for, so nothing is read from disk and pieces stay sharp at every board size.
+// A sprite is rendered once per piece and pixel size and kept in a bounded least-recently-used
+// cache: resizing the window back and forth reuses the sizes already rendered, and sizes that are
+// no longer used are dropped instead of piling up.
+// For HiDPI screens, ask for the logical size and the screen's scale (2.0 on a 2x display); the
+// sprite then has scale times as many pixels and is drawn into the logical size.
+public class SpriteFactory {
+    // 12 pieces at a handful of sizes
+    public static final int DEFAULT_CAPACITY = 96;
+
+    private final Map<Integer, BufferedImage> cache;
+
+    public SpriteFactory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpriteFactory(int capacity) {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Sprite of a piece for a size x size square at a display scale (1.0 for ordinary screens)
+    public synchronized BufferedImage sprite(Piece piece, int size, double scale) {
+        int pixels = Math.max(1, (int) Math.ceil(size * scale));
+        int key = pixels * 16 + piece.ordinal();
+        BufferedImage sprite = cache.get(key);
+        EngineMetrics.SPRITE_REQUESTS.increment();
+        if (sprite == null) {
+            sprite = render(piece, pixels);
+            cache.put(key, sprite);
+        } else {
+            EngineMetrics.SPRITE_HITS.increment();
+        }
+        return sprite;
+    }
+
+    // The piece at size for 1x, 2x and 3x displays, for icons: Swing picks the variant matching the screen
+    public Image icon(Piece piece, int size) {
+        return new BaseMultiResolutionImage(sprite(piece, size, 1), sprite(piece, size, 2), sprite(piece, size, 3));
+    }
+
+    // Premultiplied alpha, the format Java2D composites fastest
+    private static BufferedImage render(Piece piece, int pixels) {
+        BufferedImage image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = image.createGraphics();
+        ChessPieceImageGenerator.drawPiece(g, piece, pixels);
+        g.dispose();
+        return image;
+    }
+}
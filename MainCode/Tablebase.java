@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Endgame tablebases for positions with up to four pieces (kings included), built by TablebaseGenerator.
+//
+// Each material combination ("KQvK", "KRvKP", ...) has two files, memory-mapped on first use:
+//   <name>.wdl  win, draw or loss for the side to move, 2 bits per position
+//   <name>.dtm  distance to mate in plies, 1 byte per position (0 for draws)
+// Positions are indexed directly by the side to move and the square of every piece, in the order of
+// the name (white pieces, then black), so a probe is an index computation and two byte reads.
+// Tables are stored with the stronger side as white; other positions are probed with colors flipped.
+public class Tablebase {
+    public static final String DEFAULT_DIRECTORY = "resources/tablebases";
+    public static final int MAX_PIECES = 4;
+
+    // Returned by probe when no table covers the position
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    // Values in the .wdl files
+    static final int DRAW = 0;
+    static final int WIN = 1;
+    static final int LOSS = 2;
+    static final int INVALID = 3;
+
+    // Order of the pieces of one side in table names, and the material used to pick the stronger side
+    private static final String NAME_ORDER = "KQRBNP";
+    private static final int[] STRENGTH = {1, 3, 3, 5, 9, 0};
+
+    private static final View MISSING = new View(null, false);
+
+    // A move from the tables and the score of the position it was chosen for (see probe)
+    public static final class ScoredMove {
+        public final int move;
+        public final int score;
+
+        ScoredMove(int move, int score) {
+            this.move = move;
+            this.score = score;
+        }
+    }
+
+    private final Path directory;
+
+    // Table for each combination of up to two non-king pieces (see probe), opened on first use
+    private final AtomicReferenceArray<View> views = new AtomicReferenceArray<>(11 * 11);
+
+    public Tablebase(Path directory) {
+        this.directory = directory;
+    }
+
+    // Tablebases in DEFAULT_DIRECTORY, or null if there is no such directory
+    public static Tablebase openDefault() {
+        Path path = Paths.get(DEFAULT_DIRECTORY);
+        return Files.isDirectory(path) ? new Tablebase(path) : null;
+    }
+
+    // Score of the position for the side to move, in Search terms: Search.MATE - n for a win with
+    // mate in n plies, -Search.MATE + n for a loss in n plies, 0 for a draw, or NOT_FOUND
+    public int probe(ChessGame game) {
+        Position position = game.getPosition();
+        long occupied = position.occupied();
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            return NOT_FOUND;
+        }
+
+        int[] codes = new int[MAX_PIECES];
+        int[] squares = new int[MAX_PIECES];
+        int count = 0;
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            codes[count] = position.pieceAt(square);
+            squares[count++] = square;
+        }
+        return probe(codes, squares, count, game.isWhiteTurn());
+    }
+
+    // The move that wins fastest, keeps the draw or loses slowest, with the score of the position,
+    // or null if the position isn't covered
+    public ScoredMove bestMove(ChessGame game) {
+        int score = probe(game);
+        if (score == NOT_FOUND) {
+            return null;
+        }
+
+        int[] moves = new int[ChessGame.MAX_MOVES];
+        int moveCount = game.generateMoves(moves);
+        int best = Move.NONE;
+        int bestScore = NOT_FOUND;
+        for (int i = 0; i < moveCount; i++) {
+            game.makeMove(moves[i]);
+            int reply = probe(game);
+            game.unmakeMove();
+
+            // Positions the tables can't describe (a pawn left on the last rank) are skipped
+            if (reply != NOT_FOUND && -reply > bestScore) {
+                best = moves[i];
+                bestScore = -reply;
+            }
+        }
+        return best == Move.NONE ? null : new ScoredMove(best, score);
+    }
+
+    // probe for a list of pieces (codes and squares are not modified)
+    int probe(int[] codes, int[] squares, int count, boolean whiteToMove) {
+        // Identify the material by its non-king pieces: at most two, each numbered color * 5 + type
+        int first = -1;
+        int second = -1;
+        int kings = 0;
+        for (int i = 0; i < count; i++) {
+            int type = codes[i] % 6;
+            if (type == Position.KING) {
+                kings++;
+            } else if (first < 0) {
+                first = (codes[i] / 6) * 5 + type;
+            } else {
+                second = (codes[i] / 6) * 5 + type;
+            }
+        }
+        if (kings != 2) {
+            return NOT_FOUND;
+        }
+        if (first < 0) {
+            return 0; // Bare kings
+        }
+
+        int slot = (Math.min(first, second) + 1) * 11 + Math.max(first, second) + 1;
+        View view = views.get(slot);
+        if (view == null) {
+            views.compareAndSet(slot, null, openView(codes, count));
+            view = views.get(slot);
+        }
+        if (view.table == null) {
+            return NOT_FOUND;
+        }
+
+        int side = (whiteToMove ? Position.WHITE : Position.BLACK) ^ (view.flipped ? 1 : 0);
+        return view.table.score(view.table.index(codes, squares, count, side, view.flipped));
+    }
+
+    private View openView(int[] codes, int count) {
+        boolean flipped = isFlipped(codes, count);
+        int[] canonical = new int[count];
+        for (int i = 0; i < count; i++) {
+            canonical[i] = flipped ? flipCode(codes[i]) : codes[i];
+        }
+        String name = name(canonical, count);
+        try {
+            Table table = Table.open(directory, name);
+            return table == null ? MISSING : new View(table, flipped);
+        } catch (IOException e) {
+            System.err.println("Could not open tablebase " + name + ": " + e.getMessage());
+            return MISSING;
+        }
+    }
+
+    // Piece codes of a table name such as "KRvKP", white pieces first, in the order they are written
+    static int[] parseName(String name) {
+        int separator = name.indexOf('v');
+        if (separator < 1 || name.length() - 1 > MAX_PIECES) {
+            throw new IllegalArgumentException("Invalid tablebase name: " + name);
+        }
+        int[] codes = new int[name.length() - 1];
+        int count = 0;
+        int[] kings = new int[2];
+        for (int i = 0; i < name.length(); i++) {
+            if (i == separator) {
+                continue;
+            }
+            int type = "PNBRQK".indexOf(name.charAt(i));
+            if (type < 0) {
+                throw new IllegalArgumentException("Invalid tablebase name: " + name);
+            }
+            int color = i < separator ? Position.WHITE : Position.BLACK;
+            if (type == Position.KING) {
+                kings[color]++;
+            }
+            codes[count++] = color * 6 + type;
+        }
+        if (kings[0] != 1 || kings[1] != 1) {
+            throw new IllegalArgumentException("Each side needs exactly one king: " + name);
+        }
+        return codes;
+    }
+
+    // Canonical name of a set of pieces as given (white first, pieces in NAME_ORDER), e.g. "KQvK"
+    static String name(int[] codes, int count) {
+        StringBuilder[] sides = {new StringBuilder(), new StringBuilder()};
+        for (char letter : NAME_ORDER.toCharArray()) {
+            int type = "PNBRQK".indexOf(letter);
+            for (int i = 0; i < count; i++) {
+                if (codes[i] % 6 == type) {
+                    sides[codes[i] / 6].append(letter);
+                }
+            }
+        }
+        return sides[0] + "v" + sides[1];
+    }
+
+    // Whether the pieces must be color-flipped to match a stored table (black is the stronger side)
+    static boolean isFlipped(int[] codes, int count) {
+        int[] strength = new int[2];
+        for (int i = 0; i < count; i++) {
+            strength[codes[i] / 6] += STRENGTH[codes[i] % 6];
+        }
+        if (strength[0] != strength[1]) {
+            return strength[1] > strength[0];
+        }
+        String name = name(codes, count);
+        int separator = name.indexOf('v');
+        return name.substring(separator + 1).compareTo(name.substring(0, separator)) > 0;
+    }
+
+    static int flipCode(int code) {
+        return code < 6 ? code + 6 : code - 6;
+    }
+
+    // Number of positions in a table with the given number of pieces: side to move times 64 squares per piece
+    static int positions(int pieces) {
+        return 2 << (6 * pieces);
+    }
+
+    static Path wdlPath(Path directory, String name) {
+        return directory.resolve(name + ".wdl");
+    }
+
+    static Path dtmPath(Path directory, String name) {
+        return directory.resolve(name + ".dtm");
+    }
+
+    // A table together with whether positions have to be color-flipped to probe it
+    private static final class View {
+        final Table table;
+        final boolean flipped;
+
+        View(Table table, boolean flipped) {
+            this.table = table;
+            this.flipped = flipped;
+        }
+    }
+
+    // One material combination, mapped from disk
+    private static final class Table {
+        final int[] slotCodes;
+        final MappedByteBuffer wdl;
+        final MappedByteBuffer dtm;
+
+        Table(int[] slotCodes, MappedByteBuffer wdl, MappedByteBuffer dtm) {
+            this.slotCodes = slotCodes;
+            this.wdl = wdl;
+            this.dtm = dtm;
+        }
+
+        // The table for a canonical name, or null if its files are missing or the wrong size
+        static Table open(Path directory, String name) throws IOException {
+            Path wdlPath = wdlPath(directory, name);
+            Path dtmPath = dtmPath(directory, name);
+            if (!Files.isRegularFile(wdlPath) || !Files.isRegularFile(dtmPath)) {
+                return null;
+            }
+            int[] slotCodes = parseName(name);
+            int positions = positions(slotCodes.length);
+            if (Files.size(wdlPath) != positions / 4 || Files.size(dtmPath) != positions) {
+                System.err.println("Tablebase " + name + " has the wrong size and is ignored");
+                return null;
+            }
+            return new Table(slotCodes, map(wdlPath), map(dtmPath));
+        }
+
+        private static MappedByteBuffer map(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        // Pieces are matched to slots by code; identical pieces are interchangeable
+        int index(int[] codes, int[] squares, int count, int side, boolean flipped) {
+            int index = side;
+            int used = 0;
+            for (int slotCode : slotCodes) {
+                for (int i = 0; i < count; i++) {
+                    int code = flipped ? flipCode(codes[i]) : codes[i];
+                    if ((used & (1 << i)) == 0 && code == slotCode) {
+                        used |= 1 << i;
+                        index = (index << 6) | (flipped ? squares[i] ^ 56 : squares[i]);
+                        break;
+                    }
+                }
+            }
+            return index;
+        }
+
+        int score(int index) {
+            int result = (wdl.get(index >>> 2) >>> ((index & 3) * 2)) & 3;
+            int distance = dtm.get(index) & 0xFF;
+            switch (result) {
+                case WIN:
+                    return Search.MATE - distance;
+                case LOSS:
+                    return -Search.MATE + distance;
+                case DRAW:
+                    return 0;
+                default:
+                    return NOT_FOUND;
+            }
+        }
+    }
+}
@@ -0,0 +1,530 @@
+import Movement.Bishop;
+import Movement.King;
+import Movement.Knight;
+import Movement.Queen;
+import Movement.Rook;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Builds endgame tablebases (see Tablebase) by retrograde analysis.
+//
+// A forward pass sets every position up in a ChessGame and uses its legal moves to find checkmates,
+// stalemates and the results of captures and promotions, which lead into smaller tables built
+// beforehand (promotion is always to a queen, as ChessGame doesn't promote yet). Then, one ply at a
+// time, positions are resolved by un-moving pieces from the positions of the previous ply: whatever
+// leads into a lost position is won, and a position is lost once a per-position counter shows that
+// every one of its moves leads to a position won by the opponent. Whatever is left is drawn.
+// Every pass is split over the fork-join common pool.
+//
+// Usage:
+//   java -cp MainCode TablebaseGenerator [directory] KQvK KRvK KPvK KBNvK ...
+// Tables needed for captures and promotions are built first if they are missing.
+public class TablebaseGenerator {
+    // Position states during generation
+    private static final byte UNKNOWN = 0;
+    private static final byte WIN = 1;
+    private static final byte LOSS = 2;
+    private static final byte DRAW = 3;
+    private static final byte INVALID = 4;
+
+    private static final int CHUNK = 1 << 14;
+    private static final int MAX_DISTANCE = 255;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Path directory;
+    private final String name;
+    private final int[] slotCodes;
+    private final int pieces;
+    private final int placements;
+    private final Tablebase smaller;
+
+    // Per position (index = side to move * placements + placement, as in Tablebase):
+    // the state, the distance to mate in plies (for unknown positions: a pending win through a
+    // capture or promotion), the moves not yet known to lose, and the longest loss through a capture
+    private final byte[] state;
+    private final byte[] distance;
+    private final int[] remaining;
+    private final byte[] lossFloor;
+
+    // Highest distance assigned so far; the level loop can't stop before it
+    private final AtomicInteger furthest = new AtomicInteger();
+
+    private TablebaseGenerator(Path directory, String name) {
+        this.directory = directory;
+        this.name = name;
+        this.slotCodes = Tablebase.parseName(name);
+        this.pieces = slotCodes.length;
+        this.placements = 1 << (6 * pieces);
+        this.smaller = new Tablebase(directory);
+
+        int positions = Tablebase.positions(pieces);
+        state = new byte[positions];
+        distance = new byte[positions];
+        remaining = new int[positions];
+        lossFloor = new byte[positions];
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java -cp MainCode TablebaseGenerator [directory] KQvK KRvK ...");
+            return;
+        }
+
+        Path directory = Paths.get(Tablebase.DEFAULT_DIRECTORY);
+        int first = 0;
+        if (!isTableName(args[0])) {
+            directory = Paths.get(args[0]);
+            first = 1;
+        }
+        Files.createDirectories(directory);
+
+        for (int i = first; i < args.length; i++) {
+            build(directory, canonicalName(args[i]), true);
+        }
+    }
+
+    // Build a table, after any missing tables its captures and promotions lead to
+    private static void build(Path directory, String name, boolean rebuild) throws IOException {
+        if (!rebuild && Files.isRegularFile(Tablebase.wdlPath(directory, name))
+                && Files.isRegularFile(Tablebase.dtmPath(directory, name))) {
+            return;
+        }
+        for (String dependency : dependencies(name)) {
+            build(directory, dependency, false);
+        }
+        new TablebaseGenerator(directory, name).generate();
+    }
+
+    private static boolean isTableName(String text) {
+        try {
+            Tablebase.parseName(text);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String canonicalName(String name) {
+        int[] codes = Tablebase.parseName(name);
+        if (Tablebase.isFlipped(codes, codes.length)) {
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = Tablebase.flipCode(codes[i]);
+            }
+        }
+        return Tablebase.name(codes, codes.length);
+    }
+
+    // Tables reached by capturing a piece or promoting a pawn (bare kings need no table)
+    private static List<String> dependencies(String name) {
+        int[] codes = Tablebase.parseName(name);
+        List<String> dependencies = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            int type = codes[i] % 6;
+            if (type == Position.KING) {
+                continue;
+            }
+            int[] captured = new int[codes.length - 1];
+            for (int j = 0, k = 0; j < codes.length; j++) {
+                if (j != i) {
+                    captured[k++] = codes[j];
+                }
+            }
+            if (captured.length > 2) {
+                addCanonical(dependencies, captured);
+            }
+            if (type == Position.PAWN) {
+                int[] promoted = codes.clone();
+                promoted[i] += Position.QUEEN - Position.PAWN;
+                addCanonical(dependencies, promoted);
+            }
+        }
+        return dependencies;
+    }
+
+    private static void addCanonical(List<String> names, int[] codes) {
+        String name = canonicalName(Tablebase.name(codes, codes.length));
+        if (!names.contains(name)) {
+            names.add(name);
+        }
+    }
+
+    private void generate() throws IOException {
+        long start = System.nanoTime();
+        parallelFor(placements, this::initialize);
+
+        int level = 1;
+        while (true) {
+            if (level > MAX_DISTANCE) {
+                throw new IllegalStateException(name + ": distance to mate does not fit in a byte");
+            }
+            LongAdder changed = new LongAdder();
+            int current = level;
+            parallelFor(state.length, (from, to) -> markWins(from, to, current, changed));
+            parallelFor(state.length, (from, to) -> markLosses(from, to, current, changed));
+            if (changed.sum() == 0 && level > furthest.get()) {
+                break;
+            }
+            level++;
+        }
+
+        write();
+        report(System.nanoTime() - start);
+    }
+
+    // Forward pass over placements [from, to): validity, mates, stalemates, captures and promotions
+    private void initialize(int from, int to) {
+        ChessGame game = ChessGame.fromFen("8/8/8/8/8/8/8/8 w - - 0 1");
+        Position scratch = new Position();
+        int[] squares = new int[pieces];
+        int[] moves = new int[ChessGame.MAX_MOVES];
+        int[] childCodes = new int[pieces];
+        int[] childSquares = new int[pieces];
+
+        for (int placement = from; placement < to; placement++) {
+            int whiteIndex = placement;
+            int blackIndex = placements + placement;
+            decode(placement, squares);
+            if (!isPlausible(squares)) {
+                state[whiteIndex] = INVALID;
+                state[blackIndex] = INVALID;
+                continue;
+            }
+
+            for (int i = 0; i < pieces; i++) {
+                scratch.addPiece(slotCodes[i] / 6, slotCodes[i] % 6, squares[i]);
+            }
+
+            // The side that has just moved can't be in check
+            game.setPosition(scratch, false);
+            boolean blackInCheck = game.inCheck();
+            game.setPosition(scratch, true);
+            boolean whiteInCheck = game.inCheck();
+            if (blackInCheck) {
+                state[whiteIndex] = INVALID;
+            } else {
+                evaluate(game, whiteIndex, squares, moves, childCodes, childSquares);
+            }
+            if (whiteInCheck) {
+                state[blackIndex] = INVALID;
+            } else {
+                game.setPosition(scratch, false);
+                evaluate(game, blackIndex, squares, moves, childCodes, childSquares);
+            }
+
+            for (int i = 0; i < pieces; i++) {
+                scratch.removePiece(slotCodes[i] / 6, slotCodes[i] % 6, squares[i]);
+            }
+        }
+    }
+
+    private void evaluate(ChessGame game, int index, int[] squares, int[] moves, int[] childCodes, int[] childSquares) {
+        int moveCount = game.generateMoves(moves);
+        if (moveCount == 0) {
+            state[index] = game.inCheck() ? LOSS : DRAW;
+            return;
+        }
+
+        int quietMoves = 0;
+        boolean canAvoidLoss = false;
+        int winIn = 0;
+        int lossIn = 0;
+        for (int m = 0; m < moveCount; m++) {
+            int target = Move.to(moves[m]);
+            int mover = slotAt(squares, Move.from(moves[m]));
+            int captured = slotAt(squares, target);
+            boolean promotion = slotCodes[mover] % 6 == Position.PAWN
+                    && (Bitboards.row(target) == 0 || Bitboards.row(target) == 7);
+            if (captured < 0 && !promotion) {
+                quietMoves++; // Stays in this table
+                continue;
+            }
+
+            // Look the resulting position up in the smaller table
+            int count = 0;
+            for (int i = 0; i < pieces; i++) {
+                if (i != captured) {
+                    boolean isMover = i == mover;
+                    childCodes[count] = isMover && promotion ? slotCodes[i] + Position.QUEEN - Position.PAWN : slotCodes[i];
+                    childSquares[count++] = isMover ? target : squares[i];
+                }
+            }
+            int reply = smaller.probe(childCodes, childSquares, count, !game.isWhiteTurn());
+            if (reply == Tablebase.NOT_FOUND) {
+                throw new IllegalStateException("Missing tablebase " + Tablebase.name(childCodes, count));
+            }
+            if (reply < 0) {
+                int plies = reply + Search.MATE + 1;
+                winIn = winIn == 0 ? plies : Math.min(winIn, plies);
+            } else if (reply > 0) {
+                lossIn = Math.max(lossIn, Search.MATE - reply + 1);
+            } else {
+                canAvoidLoss = true;
+            }
+        }
+
+        if (winIn > 0) {
+            distance[index] = (byte) winIn; // Won at that level unless a quicker win turns up
+            reachedDistance(winIn);
+            canAvoidLoss = true;
+        }
+        if (quietMoves == 0 && !canAvoidLoss) {
+            state[index] = LOSS;
+            distance[index] = (byte) lossIn;
+            reachedDistance(lossIn);
+            return;
+        }
+        remaining[index] = quietMoves + (canAvoidLoss ? 1 : 0);
+        lossFloor[index] = (byte) lossIn;
+    }
+
+    // Level pass: whatever leads into a position lost in level - 1 plies is won in level plies
+    private void markWins(int from, int to, int level, LongAdder changed) {
+        int[] squares = new int[pieces];
+        int[] predecessors = new int[ChessGame.MAX_MOVES];
+        for (int index = from; index < to; index++) {
+            byte current = state[index];
+            if (current == UNKNOWN && (distance[index] & 0xFF) == level) {
+                state[index] = WIN; // Pending win through a capture or promotion
+                changed.increment();
+            } else if (current == LOSS && (distance[index] & 0xFF) == level - 1) {
+                int count = predecessors(index, squares, predecessors);
+                for (int i = 0; i < count; i++) {
+                    int predecessor = predecessors[i];
+                    if (state[predecessor] == UNKNOWN) {
+                        distance[predecessor] = (byte) level;
+                        state[predecessor] = WIN;
+                        changed.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    // Level pass: a position whose last undecided move leads into a win for the opponent is lost
+    private void markLosses(int from, int to, int level, LongAdder changed) {
+        int[] squares = new int[pieces];
+        int[] predecessors = new int[ChessGame.MAX_MOVES];
+        for (int index = from; index < to; index++) {
+            if (state[index] != WIN || (distance[index] & 0xFF) != level - 1) {
+                continue;
+            }
+            int count = predecessors(index, squares, predecessors);
+            for (int i = 0; i < count; i++) {
+                int predecessor = predecessors[i];
+                if (state[predecessor] == UNKNOWN && (int) INTS.getAndAdd(remaining, predecessor, -1) == 1) {
+                    int plies = Math.max(level, lossFloor[predecessor] & 0xFF);
+                    distance[predecessor] = (byte) plies;
+                    state[predecessor] = LOSS;
+                    reachedDistance(plies);
+                    changed.increment();
+                }
+            }
+        }
+    }
+
+    // Positions in this table from which the side that just moved reached the given position with a
+    // move that neither captured nor promoted. Returns how many were written to out.
+    private int predecessors(int index, int[] squares, int[] out) {
+        int sideToMove = index >= placements ? Position.BLACK : Position.WHITE;
+        int placement = index & (placements - 1);
+        decode(placement, squares);
+        long occupied = 0;
+        for (int square : squares) {
+            occupied |= Bitboards.bit(square);
+        }
+
+        int moved = sideToMove ^ 1;
+        int base = moved == Position.WHITE ? 0 : placements;
+        int count = 0;
+        for (int i = 0; i < pieces; i++) {
+            if (slotCodes[i] / 6 != moved) {
+                continue;
+            }
+            int to = squares[i];
+            long origins;
+            switch (slotCodes[i] % 6) {
+                case Position.KNIGHT:
+                    origins = Knight.attacks(to);
+                    break;
+                case Position.BISHOP:
+                    origins = Bishop.attacks(to, occupied);
+                    break;
+                case Position.ROOK:
+                    origins = Rook.attacks(to, occupied);
+                    break;
+                case Position.QUEEN:
+                    origins = Queen.attacks(to, occupied);
+                    break;
+                case Position.KING:
+                    origins = King.attacks(to);
+                    break;
+                default:
+                    origins = pawnOrigins(moved, to, occupied);
+                    break;
+            }
+            origins &= ~occupied;
+
+            int shift = 6 * (pieces - 1 - i);
+            while (origins != 0) {
+                int origin = Long.numberOfTrailingZeros(origins);
+                origins &= origins - 1;
+                int predecessor = base + placement + ((origin - to) << shift);
+                if (state[predecessor] != INVALID) {
+                    out[count++] = predecessor;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Squares a pawn can have been pushed from to reach 'to' (single push, or double push from its start row)
+    private static long pawnOrigins(int color, int to, long occupied) {
+        int back = color == Position.WHITE ? 8 : -8;
+        int from = to + back;
+        if (from < 0 || from > 63 || (occupied & Bitboards.bit(from)) != 0) {
+            return 0L;
+        }
+        long origins = 0L;
+        if (Bitboards.row(from) != 0 && Bitboards.row(from) != 7) {
+            origins |= Bitboards.bit(from);
+        }
+        int doubleRow = color == Position.WHITE ? 4 : 3;
+        if (Bitboards.row(to) == doubleRow && (occupied & Bitboards.bit(from + back)) == 0) {
+            origins |= Bitboards.bit(from + back);
+        }
+        return origins;
+    }
+
+    private void decode(int placement, int[] squares) {
+        for (int i = pieces - 1; i >= 0; i--) {
+            squares[i] = placement & 63;
+            placement >>>= 6;
+        }
+    }
+
+    // No two pieces on one square, and no pawn on the first or last rank
+    private boolean isPlausible(int[] squares) {
+        long occupied = 0;
+        for (int i = 0; i < pieces; i++) {
+            long bit = Bitboards.bit(squares[i]);
+            if ((occupied & bit) != 0) {
+                return false;
+            }
+            occupied |= bit;
+            int row = Bitboards.row(squares[i]);
+            if (slotCodes[i] % 6 == Position.PAWN && (row == 0 || row == 7)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slotAt(int[] squares, int square) {
+        for (int i = 0; i < pieces; i++) {
+            if (squares[i] == square) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void reachedDistance(int plies) {
+        furthest.accumulateAndGet(plies, Math::max);
+    }
+
+    // Pack the results into the .wdl and .dtm files
+    private void write() throws IOException {
+        byte[] wdl = new byte[state.length / 4];
+        byte[] dtm = new byte[state.length];
+        for (int index = 0; index < state.length; index++) {
+            int result;
+            switch (state[index]) {
+                case WIN:
+                    result = Tablebase.WIN;
+                    dtm[index] = distance[index];
+                    break;
+                case LOSS:
+                    result = Tablebase.LOSS;
+                    dtm[index] = distance[index];
+                    break;
+                case INVALID:
+                    result = Tablebase.INVALID;
+                    break;
+                default:
+                    result = Tablebase.DRAW; // Never resolved, or stalemate
+                    break;
+            }
+            wdl[index >>> 2] |= (byte) (result << ((index & 3) * 2));
+        }
+        Files.write(Tablebase.wdlPath(directory, name), wdl);
+        Files.write(Tablebase.dtmPath(directory, name), dtm);
+    }
+
+    private void report(long nanos) {
+        long wins = 0;
+        long draws = 0;
+        long losses = 0;
+        int longest = 0;
+        for (int index = 0; index < placements; index++) { // White to move
+            switch (state[index]) {
+                case WIN:
+                    wins++;
+                    longest = Math.max(longest, distance[index] & 0xFF);
+                    break;
+                case LOSS:
+                    losses++;
+                    break;
+                case INVALID:
+                    break;
+                default:
+                    draws++;
+                    break;
+            }
+        }
+        System.out.printf("%s: white to move wins %,d, draws %,d, loses %,d; longest mate %d moves  (%.1f s, %d threads)%n",
+                name, wins, draws, losses, (longest + 1) / 2, nanos / 1e9, ForkJoinPool.commonPool().getParallelism());
+    }
+
+    private interface RangeBody {
+        void run(int from, int to);
+    }
+
+    private static void parallelFor(int size, RangeBody body) {
+        ForkJoinPool.commonPool().invoke(new RangeTask(0, size, body));
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final RangeBody body;
+
+        RangeTask(int from, int to, RangeBody body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                body.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, body), new RangeTask(middle, to, body));
+        }
+    }
+}
@@ -0,0 +1,393 @@
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless self-play match between two engine settings (A and B), for testing search and tuning
+// changes over many games. Worker threads play whole games side by side, each on its own ChessGame
+// with its own pair of Searches and transposition tables, so nothing is shared while a game runs.
+//
+// Games come in pairs: both start from the same random opening, with the engines swapping colors.
+// A game ends on checkmate, stalemate, threefold repetition, the fifty-move rule, insufficient
+// material, a tablebase result (when tables are given) or the ply limit (adjudicated a draw).
+// Reports the score with an Elo estimate, an optional SPRT, games per second and game durations.
+//
+// Usage:
+//   java -cp MainCode Tournament [-games 1000] [-threads <cores>] [-depth 3[,3]] [-movetime 0[,0]]
+//                                [-hash 1] [-openings 8] [-maxplies 400] [-seed 1] [-sprt 0,5]
+//                                [-tablebases <directory>]
+// -depth and -movetime take one value for both engines or "A,B"; -movetime 0 means no time limit.
+public class Tournament {
+    private static final int WIN = 0;
+    private static final int DRAW = 1;
+    private static final int LOSS = 2;
+
+    // How games end
+    private static final String[] REASONS = {
+        "checkmate", "stalemate", "repetition", "fifty moves", "material", "tablebase", "ply limit"
+    };
+    private static final int CHECKMATE = 0;
+    private static final int STALEMATE = 1;
+    private static final int REPETITION = 2;
+    private static final int FIFTY_MOVES = 3;
+    private static final int MATERIAL = 4;
+    private static final int TABLEBASE = 5;
+    private static final int PLY_LIMIT = 6;
+
+    // SPRT error rates (false positive, false negative)
+    private static final double ALPHA = 0.05;
+    private static final double BETA = 0.05;
+
+    private static final long PROGRESS_SECONDS = 10;
+
+    private final int games;
+    private final int threads;
+    private final int[] depth = {3, 3};
+    private final long[] moveTime = {0, 0};
+    private final int hashMegabytes;
+    private final int openingPlies;
+    private final int maxPlies;
+    private final long seed;
+    private final double[] sprt;
+    private final Tablebase tablebase;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private volatile boolean stopped;
+    private final Standings standings = new Standings();
+
+    // Results so far, from engine A's point of view (updated by every worker)
+    private static final class Standings {
+        final long[] results = new long[3];
+        final long[] reasons = new long[REASONS.length];
+        long plies;
+        long[] durations = new long[1024];
+        int finished;
+
+        synchronized void add(int result, int reason, int gamePlies, long nanos) {
+            results[result]++;
+            reasons[reason]++;
+            plies += gamePlies;
+            if (finished == durations.length) {
+                durations = Arrays.copyOf(durations, finished * 2);
+            }
+            durations[finished++] = nanos;
+        }
+    }
+
+    private Tournament(String[] args) {
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashMegabytes = 1;
+        int openingPlies = 8;
+        int maxPlies = 400;
+        long seed = 1;
+        double[] sprt = null;
+        Tablebase tablebase = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(value);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "-depth":
+                    long[] depths = parsePair(value);
+                    depth[0] = (int) depths[0];
+                    depth[1] = (int) depths[1];
+                    break;
+                case "-movetime":
+                    System.arraycopy(parsePair(value), 0, moveTime, 0, 2);
+                    break;
+                case "-hash":
+                    hashMegabytes = Integer.parseInt(value);
+                    break;
+                case "-openings":
+                    openingPlies = Integer.parseInt(value);
+                    break;
+                case "-maxplies":
+                    maxPlies = Integer.parseInt(value);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "-sprt":
+                    String[] bounds = value.split(",");
+                    sprt = new double[] {Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1])};
+                    break;
+                case "-tablebases":
+                    if (!Files.isDirectory(Paths.get(value))) {
+                        throw new IllegalArgumentException("No tablebase directory " + value);
+                    }
+                    tablebase = new Tablebase(Paths.get(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        this.games = games;
+        this.threads = threads;
+        this.hashMegabytes = hashMegabytes;
+        this.openingPlies = openingPlies;
+        this.maxPlies = maxPlies;
+        this.seed = seed;
+        this.sprt = sprt;
+        this.tablebase = tablebase;
+    }
+
+    // "4" for both engines, or "4,3" for A and B
+    private static long[] parsePair(String value) {
+        String[] parts = value.split(",");
+        return new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[parts.length - 1])};
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Tournament tournament;
+        try {
+            tournament = new Tournament(args);
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: java -cp MainCode Tournament [-games n] [-threads n] [-depth a[,b]] [-movetime ms[,ms]]"
+                    + " [-hash mb] [-openings plies] [-maxplies n] [-seed n] [-sprt elo0,elo1] [-tablebases dir]");
+            return;
+        }
+        tournament.run();
+    }
+
+    private void run() throws InterruptedException {
+        System.out.printf("A (%s) vs B (%s): %,d games, %d threads, %d random opening plies%n",
+                describe(0), describe(1), games, threads, openingPlies);
+
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::playGames);
+        }
+        workers.shutdown();
+        while (!workers.awaitTermination(PROGRESS_SECONDS, TimeUnit.SECONDS)) {
+            synchronized (standings) {
+                System.out.printf("  %,d games  %s%n", standings.finished, score());
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        synchronized (standings) {
+            report(seconds);
+        }
+    }
+
+    private String describe(int engine) {
+        return "depth " + depth[engine] + (moveTime[engine] > 0 ? ", " + moveTime[engine] + " ms" : "");
+    }
+
+    // Worker: play games until all are taken or the SPRT has decided
+    private void playGames() {
+        ChessGame game = ChessGame.fromFen(ChessGame.START_FEN);
+        Position start = new Position(game.getPosition());
+        TranspositionTable[] tables = {new TranspositionTable(hashMegabytes), new TranspositionTable(hashMegabytes)};
+        Search[] engines = {new Search(game, tables[0]), new Search(game, tables[1])};
+        int[] moves = new int[ChessGame.MAX_MOVES];
+        long[] hashes = new long[maxPlies + openingPlies + 1];
+
+        int number;
+        while (!stopped && (number = nextGame.getAndIncrement()) < games) {
+            game.setPosition(start, true);
+            tables[0].clear();
+            tables[1].clear();
+            long begin = System.nanoTime();
+            int[] outcome = playGame(number, game, engines, moves, hashes);
+            long nanos = System.nanoTime() - begin;
+
+            synchronized (standings) {
+                standings.add(outcome[0], outcome[1], outcome[2], nanos);
+                if (sprt != null && Math.abs(sprtDecision()) == 1) {
+                    stopped = true;
+                }
+            }
+        }
+    }
+
+    // Play one game; returns {result for engine A, reason, plies}.
+    // Engine A has white in even-numbered games; both games of a pair share an opening.
+    private int[] playGame(int number, ChessGame game, Search[] engines, int[] moves, long[] hashes) {
+        Random random = new Random(seed * 1_000_003 + number / 2);
+        int engineA = number % 2 == 0 ? Position.WHITE : Position.BLACK;
+        int plies = 0;
+        int reversiblePlies = 0;
+        hashes[0] = game.getHash();
+
+        while (true) {
+            int moveCount = game.generateMoves(moves);
+            int sideToMove = game.isWhiteTurn() ? Position.WHITE : Position.BLACK;
+            int result = Integer.MIN_VALUE; // From the side to move's point of view
+            int reason = 0;
+            if (moveCount == 0) {
+                result = game.inCheck() ? LOSS : DRAW;
+                reason = game.inCheck() ? CHECKMATE : STALEMATE;
+            } else if (reversiblePlies >= 100) {
+                result = DRAW;
+                reason = FIFTY_MOVES;
+            } else if (isRepeated(hashes, plies, reversiblePlies)) {
+                result = DRAW;
+                reason = REPETITION;
+            } else if (isInsufficientMaterial(game.getPosition())) {
+                result = DRAW;
+                reason = MATERIAL;
+            } else if (plies >= maxPlies + openingPlies) {
+                result = DRAW;
+                reason = PLY_LIMIT;
+            } else if (tablebase != null) {
+                int score = tablebase.probe(game);
+                if (score != Tablebase.NOT_FOUND) {
+                    result = score > 0 ? WIN : score < 0 ? LOSS : DRAW;
+                    reason = TABLEBASE;
+                }
+            }
+            if (result != Integer.MIN_VALUE) {
+                return new int[] {sideToMove == engineA ? result : LOSS - result, reason, plies};
+            }
+
+            int move;
+            if (plies < openingPlies) {
+                move = moves[random.nextInt(moveCount)];
+            } else {
+                int engine = sideToMove == engineA ? 0 : 1;
+                engines[engine].clearStop(); // The previous search may have run out of time
+                move = engines[engine].search(depth[engine], moveTime[engine]);
+            }
+
+            int from = Move.from(move);
+            boolean irreversible = Move.isCapture(move) || game.getPosition().pieceAt(from) % 6 == Position.PAWN;
+            game.makeMove(move);
+            plies++;
+            reversiblePlies = irreversible ? 0 : reversiblePlies + 1;
+            hashes[plies] = game.getHash();
+        }
+    }
+
+    // The current position (hashes[plies]) has occurred twice before since the last capture or pawn move
+    private static boolean isRepeated(long[] hashes, int plies, int reversiblePlies) {
+        int count = 0;
+        for (int ply = plies - 2; ply >= plies - reversiblePlies; ply -= 2) {
+            if (hashes[ply] == hashes[plies] && ++count == 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Bare kings, or a single bishop or knight against a bare king
+    private static boolean isInsufficientMaterial(Position position) {
+        int pieces = Long.bitCount(position.occupied());
+        if (pieces == 2) {
+            return true;
+        }
+        long minors = position.pieces(Position.WHITE, Position.KNIGHT) | position.pieces(Position.BLACK, Position.KNIGHT)
+                | position.pieces(Position.WHITE, Position.BISHOP) | position.pieces(Position.BLACK, Position.BISHOP);
+        return pieces == 3 && minors != 0;
+    }
+
+    private void report(double seconds) {
+        long played = standings.finished;
+        System.out.printf("Games: %,d in %.1f s  (%.2f games/s, %,.0f plies/s, %d threads)%n",
+                played, seconds, played / seconds, standings.plies / seconds, threads);
+        System.out.println("A vs B: " + score());
+        if (sprt != null) {
+            int decision = sprtDecision();
+            System.out.printf("SPRT elo0 %.1f elo1 %.1f: LLR %.2f [%.2f, %.2f]  %s%n", sprt[0], sprt[1],
+                    logLikelihoodRatio(), Math.log(BETA / (1 - ALPHA)), Math.log((1 - BETA) / ALPHA),
+                    decision == 1 ? "H1 accepted" : decision == -1 ? "H0 accepted" : "undecided");
+        }
+
+        StringBuilder reasons = new StringBuilder("Endings:");
+        for (int i = 0; i < REASONS.length; i++) {
+            reasons.append(String.format("  %s %,d", REASONS[i], standings.reasons[i]));
+        }
+        System.out.println(reasons);
+
+        long[] durations = Arrays.copyOf(standings.durations, standings.finished);
+        Arrays.sort(durations);
+        if (durations.length > 0) {
+            System.out.printf("Game time (ms): p50 %.0f  p90 %.0f  p99 %.0f  max %.0f%n",
+                    percentile(durations, 50), percentile(durations, 90), percentile(durations, 99),
+                    durations[durations.length - 1] / 1e6);
+        }
+    }
+
+    // Nearest-rank percentile of sorted nanosecond durations, in milliseconds
+    private static double percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    // e.g. "+120 =300 -80  score 54.0%  Elo +27.9 +/- 18.1"
+    private String score() {
+        long wins = standings.results[WIN];
+        long draws = standings.results[DRAW];
+        long losses = standings.results[LOSS];
+        long total = wins + draws + losses;
+        if (total == 0) {
+            return "no games finished";
+        }
+        double score = (wins + draws / 2.0) / total;
+        String text = String.format("+%d =%d -%d  score %.1f%%", wins, draws, losses, score * 100);
+        if (score <= 0 || score >= 1) {
+            return text;
+        }
+
+        // 95% interval from the per-game variance of the score
+        double deviation = Math.sqrt(variance(score) / total);
+        double low = elo(Math.max(score - 1.96 * deviation, 1e-6));
+        double high = elo(Math.min(score + 1.96 * deviation, 1 - 1e-6));
+        return text + String.format("  Elo %+.1f +/- %.1f", elo(score), (high - low) / 2);
+    }
+
+    // Variance of a single game's score (1, 1/2 or 0) around the mean score
+    private double variance(double score) {
+        long total = standings.results[WIN] + standings.results[DRAW] + standings.results[LOSS];
+        return (standings.results[WIN] * (1 - score) * (1 - score)
+                + standings.results[DRAW] * (0.5 - score) * (0.5 - score)
+                + standings.results[LOSS] * score * score) / total;
+    }
+
+    private static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    // Log-likelihood ratio of elo1 against elo0 (normal approximation to the trinomial game results)
+    private double logLikelihoodRatio() {
+        long total = standings.results[WIN] + standings.results[DRAW] + standings.results[LOSS];
+        if (total == 0) {
+            return 0;
+        }
+        double score = (standings.results[WIN] + standings.results[DRAW] / 2.0) / total;
+        double variance = variance(score);
+        if (variance == 0) {
+            return 0;
+        }
+        double score0 = expectedScore(sprt[0]);
+        double score1 = expectedScore(sprt[1]);
+        return total * (score1 - score0) * (2 * score - score0 - score1) / (2 * variance);
+    }
+
+    // 1 when H1 (elo1) is accepted, -1 when H0 (elo0) is, 0 while undecided
+    private int sprtDecision() {
+        double llr = logLikelihoodRatio();
+        if (llr >= Math.log((1 - BETA) / ALPHA)) {
+            return 1;
+        }
+        if (llr <= Math.log(BETA / (1 - ALPHA))) {
+            return -1;
+        }
+        return 0;
+    }
+}
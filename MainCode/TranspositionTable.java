@@ -0,0 +1,167 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Fixed-size transposition table keyed by ChessGame.getHash(), stored off-heap in direct ByteBuffers
+// so even gigabyte-sized tables add nothing for the garbage collector to scan.
+// (Direct memory is capped by -XX:MaxDirectMemorySize, which defaults to the maximum heap size.)
+//
+// Each entry is two longs: (key ^ data) and data. Readers only accept an entry when the XOR of the
+// two words gives back their key, so a half-written entry from another thread reads as a miss.
+// That makes reads and writes lock-free and safe to share between search threads.
+//
+// Entries are grouped four to a 64-byte bucket. A store replaces an entry for the same position
+// only with a deeper or exact result; otherwise the shallowest (or oldest) entry in the bucket goes.
+public class TranspositionTable {
+    public static final int BOUND_LOWER = 1;
+    public static final int BOUND_UPPER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_SHIFT = 6; // 64-byte buckets
+    private static final int CHUNK_SHIFT = 30; // 1 GB per ByteBuffer
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer[] chunks;
+    private final long bucketMask;
+    private final int bucketsPerChunkShift;
+    private final int chunkOffsetMask;
+    private int generation;
+
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB");
+        }
+
+        // Round down to a power of two number of buckets so the index is a mask
+        long bytes = Long.highestOneBit((long) megabytes << 20);
+        long buckets = bytes >>> BUCKET_SHIFT;
+        bucketMask = buckets - 1;
+
+        long chunkBytes = Math.min(bytes, 1L << CHUNK_SHIFT);
+        bucketsPerChunkShift = Long.numberOfTrailingZeros(chunkBytes) - BUCKET_SHIFT;
+        chunkOffsetMask = (1 << bucketsPerChunkShift) - 1;
+        chunks = new ByteBuffer[(int) (bytes / chunkBytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect((int) chunkBytes).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // Start a new search: older entries become preferred for replacement
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        for (ByteBuffer chunk : chunks) {
+            for (int offset = 0; offset < chunk.capacity(); offset += 8) {
+                LONGS.setOpaque(chunk, offset, 0L);
+            }
+        }
+    }
+
+    // Packed entry data for the position, or 0 if the table has nothing for it
+    public long probe(long key) {
+        ByteBuffer chunk = chunkFor(key);
+        int base = bucketOffset(key);
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int offset = base + i * ENTRY_BYTES;
+            long data = (long) LONGS.getOpaque(chunk, offset + 8);
+            long check = (long) LONGS.getOpaque(chunk, offset);
+            if ((check ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        ByteBuffer chunk = chunkFor(key);
+        int base = bucketOffset(key);
+
+        int target = base;
+        int targetPriority = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int offset = base + i * ENTRY_BYTES;
+            long data = (long) LONGS.getOpaque(chunk, offset + 8);
+            long check = (long) LONGS.getOpaque(chunk, offset);
+
+            if ((check ^ data) == key && data != 0) {
+                // Same position: keep the deeper result unless this one is exact or the old one is stale
+                if (depth < depth(data) && bound != BOUND_EXACT && generation(data) == generation) {
+                    return;
+                }
+                if (move == Move.NONE) {
+                    move = move(data);
+                }
+                target = offset;
+                break;
+            }
+
+            // Otherwise replace the shallowest entry, treating entries from old searches as shallower
+            int age = (generation - generation(data)) & 0xFF;
+            int priority = data == 0 ? Integer.MIN_VALUE : depth(data) - 8 * age;
+            if (priority < targetPriority) {
+                targetPriority = priority;
+                target = offset;
+            }
+        }
+
+        long data = pack(move, score, depth, bound, generation);
+        LONGS.setOpaque(chunk, target + 8, data);
+        LONGS.setOpaque(chunk, target, key ^ data);
+    }
+
+    // Permill of sampled entries written during the current search
+    public int hashfull() {
+        int used = 0;
+        ByteBuffer chunk = chunks[0];
+        int samples = Math.min(1000, chunk.capacity() / ENTRY_BYTES);
+        for (int i = 0; i < samples; i++) {
+            long data = (long) LONGS.getOpaque(chunk, i * ENTRY_BYTES + 8);
+            if (data != 0 && generation(data) == generation) {
+                used++;
+            }
+        }
+        return samples == 0 ? 0 : used * 1000 / samples;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (byte) (data >>> 32);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 0x3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 42) & 0xFF);
+    }
+
+    private static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((depth & 0xFFL) << 32)
+                | ((long) bound << 40)
+                | ((long) generation << 42);
+    }
+
+    private ByteBuffer chunkFor(long key) {
+        return chunks[(int) ((key & bucketMask) >>> bucketsPerChunkShift)];
+    }
+
+    private int bucketOffset(long key) {
+        return ((int) key & chunkOffsetMask) << BUCKET_SHIFT;
+    }
+}
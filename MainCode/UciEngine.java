@@ -0,0 +1,371 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Headless engine speaking the Universal Chess Interface (UCI) protocol over a pair of streams,
+// for chess GUIs and tournament harnesses. Commands are read line by line on the calling thread
+// while searches run on their own thread, so "stop" and "isready" are answered during a search.
+// Only the game logic and search classes are used, so no AWT/Swing classes are ever loaded.
+//
+// Supported: uci, isready, ucinewgame, setoption (Hash, Threads, OwnBook, BookFile, TablebasePath),
+// position, go, stop, quit. When an opening book is loaded, "go" answers from it without searching if
+// the position is in it, and positions the endgame tablebases cover are answered from those.
+// ucinewgame, setoption, position and go sent during a search stop it first, as "stop" would,
+// so a GUI that skips "stop" (after "go infinite", say) can't leave the engine waiting.
+public class UciEngine {
+    private static final String NAME = "CompSciProject Chess";
+    private static final int DEFAULT_HASH_MB = 64;
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 256;
+
+    // Time kept back from the clock for communication delays, and the moves assumed left without movestogo
+    private static final long MOVE_OVERHEAD_MS = 50;
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uci-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> runningSearch;
+    private CountDownLatch stopReceived; // Counted down by "stop" or "quit" for the running search
+
+    private TranspositionTable table = new TranspositionTable(DEFAULT_HASH_MB);
+    private ParallelSearch searchEngine = new ParallelSearch(table, 1);
+    private ChessGame game = ChessGame.fromFen(ChessGame.START_FEN);
+
+    private PolyglotBook book = PolyglotBook.openDefault();
+    private boolean ownBook = true;
+    private final Random random = new Random();
+
+    private Tablebase tablebase = Tablebase.openDefault();
+
+    public UciEngine(InputStream in, PrintStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in));
+        this.out = out;
+        searchEngine.setTablebase(tablebase);
+    }
+
+    // Handle commands until "quit" or the end of the input
+    public void run() throws IOException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                switch (tokens[0]) {
+                    case "uci":
+                        send("id name " + NAME);
+                        send("id author CompSciProject");
+                        send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                        send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                        send("option name OwnBook type check default true");
+                        send("option name BookFile type string default " + PolyglotBook.DEFAULT_PATH);
+                        send("option name TablebasePath type string default " + Tablebase.DEFAULT_DIRECTORY);
+                        send("uciok");
+                        break;
+                    case "isready":
+                        send("readyok");
+                        break;
+                    case "ucinewgame":
+                        stopSearch();
+                        waitForSearch();
+                        table.clear();
+                        game = ChessGame.fromFen(ChessGame.START_FEN);
+                        break;
+                    case "setoption":
+                        stopSearch();
+                        waitForSearch();
+                        setOption(tokens);
+                        break;
+                    case "position":
+                        stopSearch();
+                        waitForSearch();
+                        setPosition(tokens);
+                        break;
+                    case "go":
+                        stopSearch();
+                        waitForSearch();
+                        go(tokens);
+                        break;
+                    case "stop":
+                        stopSearch();
+                        break;
+                    case "quit":
+                        return;
+                    default:
+                        break; // Unknown commands are ignored, as the protocol asks
+                }
+            }
+        } finally {
+            stopSearch();
+            waitForSearch();
+            searchEngine.shutdown();
+            searchThread.shutdownNow();
+            if (book != null) {
+                book.close();
+            }
+        }
+    }
+
+    // setoption name <id> value <x> (the value may contain spaces, e.g. a book path)
+    private void setOption(String[] tokens) {
+        int valueIndex = Arrays.asList(tokens).indexOf("value");
+        if (tokens.length < 3 || !tokens[1].equals("name") || valueIndex < 3) {
+            return;
+        }
+        String name = String.join(" ", Arrays.copyOfRange(tokens, 2, valueIndex));
+        String value = String.join(" ", Arrays.copyOfRange(tokens, valueIndex + 1, tokens.length));
+        try {
+            if (name.equalsIgnoreCase("Hash")) {
+                table = new TranspositionTable(clamp(Integer.parseInt(value), 1, MAX_HASH_MB));
+                recreateSearch(searchEngine.getThreads());
+            } else if (name.equalsIgnoreCase("Threads")) {
+                recreateSearch(clamp(Integer.parseInt(value), 1, MAX_THREADS));
+            } else if (name.equalsIgnoreCase("OwnBook")) {
+                ownBook = Boolean.parseBoolean(value);
+            } else if (name.equalsIgnoreCase("BookFile")) {
+                openBook(value);
+            } else if (name.equalsIgnoreCase("TablebasePath")) {
+                openTablebase(value);
+            }
+        } catch (NumberFormatException e) {
+            send("info string invalid value for " + name + ": " + value);
+        }
+    }
+
+    private void openBook(String path) {
+        try {
+            if (book != null) {
+                book.close();
+                book = null;
+            }
+            if (!path.isEmpty() && !path.equals("<empty>")) {
+                book = new PolyglotBook(Paths.get(path));
+                if (!PolyglotBook.isAvailable()) {
+                    send("info string opening book disabled: Polyglot random table missing or invalid");
+                }
+            }
+        } catch (IOException | InvalidPathException e) {
+            send("info string could not open book " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void openTablebase(String path) {
+        try {
+            tablebase = path.isEmpty() || path.equals("<empty>") ? null : new Tablebase(Paths.get(path));
+        } catch (InvalidPathException e) {
+            tablebase = null;
+            send("info string invalid tablebase path " + path + ": " + e.getMessage());
+        }
+        searchEngine.setTablebase(tablebase);
+    }
+
+    private void recreateSearch(int threads) {
+        searchEngine.shutdown();
+        searchEngine = new ParallelSearch(table, threads);
+        searchEngine.setTablebase(tablebase);
+    }
+
+    // position (startpos | fen <fen>) [moves <move> ...]
+    private void setPosition(String[] tokens) {
+        if (tokens.length < 2) {
+            return;
+        }
+
+        int i;
+        ChessGame newGame;
+        try {
+            if (tokens[1].equals("startpos")) {
+                newGame = ChessGame.fromFen(ChessGame.START_FEN);
+                i = 2;
+            } else if (tokens[1].equals("fen")) {
+                StringBuilder fen = new StringBuilder();
+                for (i = 2; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                    fen.append(tokens[i]).append(' ');
+                }
+                newGame = ChessGame.fromFen(fen.toString());
+            } else {
+                return;
+            }
+        } catch (RuntimeException e) {
+            send("info string invalid position: " + e.getMessage());
+            return;
+        }
+
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            int[] moves = new int[ChessGame.MAX_MOVES];
+            for (i++; i < tokens.length; i++) {
+                int move = findMove(newGame, tokens[i], moves);
+                if (move == Move.NONE) {
+                    send("info string illegal move " + tokens[i]);
+                    break;
+                }
+                newGame.makeMove(move);
+            }
+        }
+        game = newGame;
+    }
+
+    // The legal move written in coordinate notation ("e2e4"), or Move.NONE
+    private static int findMove(ChessGame game, String text, int[] moves) {
+        int moveCount = game.generateMoves(moves);
+        for (int i = 0; i < moveCount; i++) {
+            if (Move.toString(moves[i]).equals(text)) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    // go [depth <n>] [movetime <ms>] [wtime <ms>] [btime <ms>] [winc <ms>] [binc <ms>] [movestogo <n>] [infinite]
+    private void go(String[] tokens) {
+        int depth = Search.MAX_DEPTH;
+        long moveTime = 0;
+        long whiteTime = -1;
+        long blackTime = -1;
+        long whiteIncrement = 0;
+        long blackIncrement = 0;
+        int movesToGo = 0;
+        boolean infinite = Arrays.asList(tokens).contains("infinite");
+        try {
+            for (int i = 1; i + 1 < tokens.length; i++) {
+                switch (tokens[i]) {
+                    case "depth":
+                        depth = clamp(Integer.parseInt(tokens[++i]), 1, Search.MAX_DEPTH);
+                        break;
+                    case "movetime":
+                        moveTime = Long.parseLong(tokens[++i]);
+                        break;
+                    case "wtime":
+                        whiteTime = Long.parseLong(tokens[++i]);
+                        break;
+                    case "btime":
+                        blackTime = Long.parseLong(tokens[++i]);
+                        break;
+                    case "winc":
+                        whiteIncrement = Long.parseLong(tokens[++i]);
+                        break;
+                    case "binc":
+                        blackIncrement = Long.parseLong(tokens[++i]);
+                        break;
+                    case "movestogo":
+                        movesToGo = Integer.parseInt(tokens[++i]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            send("info string invalid go command");
+        }
+
+        // Playing on a clock: spend an even share of the remaining time plus most of the increment
+        long clock = game.isWhiteTurn() ? whiteTime : blackTime;
+        if (moveTime <= 0 && clock >= 0) {
+            long increment = game.isWhiteTurn() ? whiteIncrement : blackIncrement;
+            long share = clock / (movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO) + increment * 3 / 4;
+            moveTime = Math.max(1, Math.min(share, clock - MOVE_OVERHEAD_MS));
+        }
+
+        // A book move is played at once (the live game is probed, as its move history decides en passant)
+        if (ownBook && book != null && !infinite) {
+            int bookMove = book.randomMove(game, random);
+            if (bookMove != Move.NONE) {
+                send("info string book move");
+                send("bestmove " + Move.toString(bookMove));
+                return;
+            }
+        }
+
+        // So is a tablebase move, which keeps the result the tables give for the position
+        if (tablebase != null && !infinite) {
+            Tablebase.ScoredMove tablebaseMove = tablebase.bestMove(game);
+            if (tablebaseMove != null) {
+                send("info depth 1 score " + formatScore(tablebaseMove.score) + " pv " + Move.toString(tablebaseMove.move));
+                send("bestmove " + Move.toString(tablebaseMove.move));
+                return;
+            }
+        }
+
+        ChessGame snapshot = game.copy();
+        ParallelSearch engine = searchEngine;
+        int maxDepth = depth;
+        long timeLimit = moveTime;
+        long start = System.nanoTime();
+        engine.setProgressListener((completedDepth, score, bestMove, nodes) -> {
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            send("info depth " + completedDepth + " score " + formatScore(score) + " nodes " + nodes
+                    + " nps " + nodes * 1000 / millis + " time " + millis + " pv " + Move.toString(bestMove));
+        });
+        // Cleared here rather than on the search thread, so a "stop" read before that thread starts still counts
+        engine.clearStop();
+        CountDownLatch stopped = new CountDownLatch(1);
+        stopReceived = stopped;
+        runningSearch = searchThread.submit(() -> {
+            int move = engine.search(snapshot, maxDepth, timeLimit);
+            if (infinite) {
+                // Even after a mate or the last depth, the protocol holds the move until "stop"
+                try {
+                    stopped.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            send("bestmove " + (move == Move.NONE ? "0000" : Move.toString(move)));
+        });
+    }
+
+    // Stop the running search, and let a "go infinite" search report its best move
+    private void stopSearch() {
+        searchEngine.stop();
+        if (stopReceived != null) {
+            stopReceived.countDown();
+        }
+    }
+
+    // Block until the running search (if any) has reported its best move
+    private void waitForSearch() {
+        if (runningSearch == null) {
+            return;
+        }
+        try {
+            runningSearch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            send("info string search failed: " + e.getCause());
+        }
+        runningSearch = null;
+    }
+
+    // "cp <centipawns>" or "mate <moves>" (negative when the engine is getting mated)
+    private static String formatScore(int score) {
+        int mateIn = Search.mateIn(score);
+        return mateIn != 0 ? "mate " + mateIn : "cp " + score;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // Lines from the search thread and the input thread must not interleave
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.SplittableRandom;
+
+// Random keys for Zobrist hashing. A position's key is the XOR of one key per piece
+// on its square, plus SIDE when Black is to move, so a move updates it with a few XORs.
+// The generator is seeded so keys are stable from run to run and can be stored.
+public final class Zobrist {
+    public static final long SIDE;
+
+    // PIECE_SQUARE[color * 6 + type][square]
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EEDC0FFEEL);
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[piece][square] = random.nextLong();
+            }
+        }
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    // Full key computed from scratch (used to set up a game and to check the incremental key)
+    public static long compute(Position position, boolean isWhiteTurn) {
+        long key = isWhiteTurn ? 0L : SIDE;
+        long occupied = position.occupied();
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            key ^= PIECE_SQUARE[position.pieceAt(square)][square];
+        }
+        return key;
+    }
+}